@@ -0,0 +1,118 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import com.agnostik.bot_runner.record.Recorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decision-path costs of a single session: prompt building, response parsing and the work
+ * typeText does up front (planning plus the first frame's timer task). No network is
+ * involved; http, ws and the LLM client are left out of the runtime.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BotSessionBenchmark {
+
+    private static final String RESPONSE =
+            "{\"move\":\"left\",\"lock\":\"none\",\"text\":\"Howdy partner, here comes the sun and I say it's all right\",\"request\":\"accept\"}";
+
+    private SimpleMeterRegistry registry;
+    private BotTimer timer;
+    private BotScheduler scheduler;
+    private RuleEngine rules;
+    private BotRuntime runtime;
+    private AppProperties.BotCredential cred;
+    private SnapshotDTO snapshot;
+    private BotSession session;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AppProperties props = new AppProperties();
+        LlmProperties llmProps = new LlmProperties();
+        registry = new SimpleMeterRegistry();
+        timer = new BotTimer(props);
+        scheduler = new BotScheduler(props, registry);
+        BotMetrics metrics = new BotMetrics(registry);
+        rules = new RuleEngine(props, registry);
+        runtime = new BotRuntime(props, null, null, null, llmProps, timer, scheduler, rules,
+                new TypingPlanner(props), null, new DecisionCache(llmProps, registry), metrics, new Recorder(props));
+
+        cred = new AppProperties.BotCredential();
+        cred.setUsername("bench");
+        snapshot = new SnapshotDTO(
+                new SnapshotDTO.UserView(1L, "", false, 3),
+                new SnapshotDTO.NeighborView(2L, "Is anybody out there?", false, false, true, false),
+                new SnapshotDTO.NeighborView(3L, "", true, true, false, false),
+                new SnapshotDTO.CorridorInfo(12));
+        session = new BotSession(cred, runtime);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        session.stop();
+        scheduler.shutdown();
+        rules.shutdown();
+        timer.shutdown();
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return session.buildPrompt(snapshot);
+    }
+
+    @Benchmark
+    public Object parseAction() {
+        return session.parseAction(RESPONSE);
+    }
+
+    /**
+     * A fresh session per invocation, because typeText refuses to start while a previous
+     * plan is still typing. Construction stays in setup, but per-invocation fixtures add
+     * their own overhead, so compare runs of this benchmark rather than reading the score
+     * as an absolute cost.
+     */
+    @State(Scope.Thread)
+    public static class Typing {
+
+        @Param({"16", "1000", "20000"})
+        int textLength;
+
+        String text;
+        BotSession session;
+
+        @Setup(Level.Trial)
+        public void text() {
+            text = "Yesterday all my troubles seemed so far away. ".repeat(textLength / 46 + 1).substring(0, textLength);
+        }
+
+        @Setup(Level.Invocation)
+        public void open(BotSessionBenchmark bench) {
+            session = new BotSession(bench.cred, bench.runtime);
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            session.stop();
+        }
+    }
+
+    @Benchmark
+    public void typeText(Typing typing) {
+        typing.session.typeText(typing.text);
+    }
+}
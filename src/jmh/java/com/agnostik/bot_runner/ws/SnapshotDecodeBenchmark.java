@@ -0,0 +1,84 @@
+package com.agnostik.bot_runner.ws;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning one snapshot frame into a {@link SnapshotDTO}: the generic Jackson
+ * converter against {@link SnapshotDecoder}, both cold and against the previous snapshot.
+ * Run with the gc profiler to compare bytes allocated per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotDecodeBenchmark {
+
+    private static final String FRAME = "{"
+            + "\"me\":{\"id\":17,\"text\":\"Here comes the sun\",\"locked\":false,\"myIndex\":4},"
+            + "\"left\":{\"id\":16,\"text\":\"Is anybody out there?\",\"locked\":false,\"friend\":false,\"requestToMe\":true,\"requestFromMe\":false},"
+            + "\"right\":{\"id\":18,\"text\":\"\",\"locked\":true,\"friend\":true,\"requestToMe\":false,\"requestFromMe\":false},"
+            + "\"corridor\":{\"size\":32}"
+            + "}";
+
+    // same corridor, only the left neighbor's text moved on
+    private static final String NEXT_FRAME = FRAME.replace("Is anybody out there?", "Is anybody out there?!");
+
+    private MappingJackson2MessageConverter converter;
+    private Message<byte[]> message;
+    private SnapshotDecoder decoder;
+    private byte[] frame;
+    private byte[] nextFrame;
+    private SnapshotDTO previous;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        converter = new MappingJackson2MessageConverter();
+        message = MessageBuilder.withPayload(FRAME.getBytes(StandardCharsets.UTF_8))
+                .setHeader(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON)
+                .build();
+        decoder = new SnapshotDecoder();
+        frame = FRAME.getBytes(StandardCharsets.UTF_8);
+        nextFrame = NEXT_FRAME.getBytes(StandardCharsets.UTF_8);
+        try {
+            previous = decoder.decode(frame, null);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public Object fromMessage() {
+        return converter.fromMessage(message, SnapshotDTO.class);
+    }
+
+    @Benchmark
+    public SnapshotDTO decodeCold() throws IOException {
+        return decoder.decode(frame, null);
+    }
+
+    @Benchmark
+    public SnapshotDTO decodeUnchanged() throws IOException {
+        return decoder.decode(frame, previous);
+    }
+
+    @Benchmark
+    public SnapshotDTO decodeOneFieldChanged() throws IOException {
+        return decoder.decode(nextFrame, previous);
+    }
+}
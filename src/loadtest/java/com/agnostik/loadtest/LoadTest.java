@@ -0,0 +1,181 @@
+package com.agnostik.loadtest;
+
+import com.agnostik.bot_runner.BotRunnerApplication;
+import com.agnostik.loadtest.standin.CorridorStandIn;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the corridor stand-in and a bot runner with N generated bots in one JVM, lets the
+ * fleet settle, then measures a fixed window and prints throughput, latency and per-bot
+ * cost. CPU and heap include the stand-in, which is small next to the bots but not free.
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--bots=500 --llm-share=0.2 --duration-s=60"
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final Set<String> AUTH_ENDPOINTS = Set.of("login", "register");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        int bots = Integer.parseInt(opts.getOrDefault("bots", "200"));
+        double llmShare = Double.parseDouble(opts.getOrDefault("llm-share", "0"));
+        long warmupS = Long.parseLong(opts.getOrDefault("warmup-s", "15"));
+        long durationS = Long.parseLong(opts.getOrDefault("duration-s", "60"));
+        long startupTimeoutS = Long.parseLong(opts.getOrDefault("startup-timeout-s", "300"));
+
+        ConfigurableApplicationContext standIn = new SpringApplicationBuilder(CorridorStandIn.class)
+                .properties("server.port=0",
+                        "standin.llm.latency-ms=" + opts.getOrDefault("llm-latency-ms", "300"))
+                .run();
+        int port = ((WebServerApplicationContext) standIn).getWebServer().getPort();
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = settledHeap(memory);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("app.base-url", "http://localhost:" + port);
+        props.put("app.ws-endpoint", "ws://localhost:" + port + "/ws");
+        props.put("app.token-cache.enabled", "false");
+        props.put("app.startup.connects-per-second", opts.getOrDefault("connects-per-second", "100"));
+        props.put("llm.url", "http://localhost:" + port + "/llm/chat/completions");
+        props.put("llm.api-key", "standin");
+        props.put("llm.model", "standin");
+        props.put("management.metrics.distribution.percentiles.backend.requests", "0.5,0.99");
+        // the generated fleet replaces the hand-written bots from application.yml
+        props.put("app.bots", "");
+        props.put("app.fleet.prefix", "load-");
+        props.put("app.fleet.count", String.valueOf(bots));
+        props.put("app.fleet.password-template", "load");
+        props.put("app.fleet.behavior-mix.llm", String.valueOf(llmShare));
+        props.put("app.fleet.behavior-mix.fixed", String.valueOf(1 - llmShare));
+
+        long startedAt = System.nanoTime();
+        ConfigurableApplicationContext runner = new SpringApplicationBuilder(BotRunnerApplication.class)
+                .web(WebApplicationType.NONE)
+                .initializers(ctx -> ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("loadtest", props)))
+                .run();
+        MeterRegistry registry = runner.getBean(MeterRegistry.class);
+
+        long deadline = startedAt + TimeUnit.SECONDS.toNanos(startupTimeoutS);
+        while (gauge(registry, "bot.sessions.active") < bots && System.nanoTime() < deadline) {
+            Thread.sleep(500);
+        }
+        double active = gauge(registry, "bot.sessions.active");
+        double rampS = (System.nanoTime() - startedAt) / 1e9;
+        System.out.printf(Locale.ROOT, "started %.0f/%d bots in %.1f s (~%.0f%% with LLM)%n", active, bots, rampS, llmShare * 100);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(warmupS));
+
+        Sample before = Sample.take(registry);
+        long cpuBefore = processCpuNanos();
+        long windowStart = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(durationS));
+        double windowS = (System.nanoTime() - windowStart) / 1e9;
+        long cpuNanos = processCpuNanos() - cpuBefore;
+        Sample after = Sample.take(registry);
+        long heapAfter = settledHeap(memory);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        double perBot = Math.max(1, active);
+        System.out.println("---- load test ----");
+        System.out.printf(Locale.ROOT, "bots active        %.0f (typing %.0f)%n", active, gauge(registry, "bot.sessions.typing"));
+        System.out.printf(Locale.ROOT, "actions/sec        %.1f%n", (after.actions - before.actions) / windowS);
+        System.out.printf(Locale.ROOT, "frames/sec         %.1f sent, %.1f received%n",
+                (after.framesSent - before.framesSent) / windowS, (after.framesReceived - before.framesReceived) / windowS);
+        System.out.printf(Locale.ROOT, "llm calls/sec      %.1f%n", (after.llmCalls - before.llmCalls) / windowS);
+        System.out.printf(Locale.ROOT, "cpu                %.1f%% of %d cores, %.3f ms/s per bot%n",
+                100.0 * cpuNanos / (windowS * 1e9 * cores), cores, cpuNanos / 1e6 / windowS / perBot);
+        System.out.printf(Locale.ROOT, "heap               %.1f MiB total, %.1f KiB per bot%n",
+                (heapAfter - heapBefore) / 1048576.0, (heapAfter - heapBefore) / 1024.0 / perBot);
+        System.out.println("action latency (ms, p50 / p99 / max) by endpoint:");
+        for (Timer timer : registry.find("backend.requests").tag("outcome", "success").timers()) {
+            String endpoint = timer.getId().getTag("endpoint");
+            if (AUTH_ENDPOINTS.contains(endpoint)) continue;
+            Map<Double, Double> p = percentiles(timer);
+            System.out.printf(Locale.ROOT, "  %-12s %8.1f %8.1f %8.1f  (n=%d)%n", endpoint,
+                    p.getOrDefault(0.5, Double.NaN), p.getOrDefault(0.99, Double.NaN),
+                    timer.max(TimeUnit.MILLISECONDS), timer.count());
+        }
+
+        runner.close();
+        standIn.close();
+        System.exit(0);
+    }
+
+    private record Sample(double actions, double framesSent, double framesReceived, double llmCalls) {
+
+        static Sample take(MeterRegistry registry) {
+            double actions = 0;
+            for (Timer timer : registry.find("backend.requests").timers()) {
+                if (!AUTH_ENDPOINTS.contains(timer.getId().getTag("endpoint"))) actions += timer.count();
+            }
+            double llm = 0;
+            for (Timer timer : registry.find("llm.requests").timers()) llm += timer.count();
+            return new Sample(actions,
+                    counter(registry, "stomp.frames.sent"),
+                    counter(registry, "stomp.frames.received"),
+                    llm);
+        }
+    }
+
+    private static double counter(MeterRegistry registry, String name) {
+        Counter counter = registry.find(name).counter();
+        return counter != null ? counter.count() : 0;
+    }
+
+    private static double gauge(MeterRegistry registry, String name) {
+        Gauge gauge = registry.find(name).gauge();
+        return gauge != null ? gauge.value() : 0;
+    }
+
+    private static Map<Double, Double> percentiles(Timer timer) {
+        Map<Double, Double> out = new TreeMap<>();
+        for (ValueAtPercentile v : timer.takeSnapshot().percentileValues()) {
+            out.put(v.percentile(), v.value(TimeUnit.MILLISECONDS));
+        }
+        return out;
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static long settledHeap(MemoryMXBean memory) throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq > 2) opts.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return opts;
+    }
+}
@@ -0,0 +1,190 @@
+package com.agnostik.loadtest.standin;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal corridor model: users sit in a line, see only their immediate neighbors, can swap
+ * places with an unlocked neighbor and exchange friend requests with them. Every change
+ * pushes a fresh snapshot to the users whose view it touched.
+ *
+ * One lock guards the whole corridor; snapshots are built under it and sent after it is
+ * released, so STOMP back-pressure never blocks other requests.
+ */
+@Component
+public class Corridor {
+
+    private final SimpMessagingTemplate stomp;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<String, User> users = new HashMap<>();
+    private final List<User> line = new ArrayList<>();
+
+    public Corridor(SimpMessagingTemplate stomp) {
+        this.stomp = stomp;
+    }
+
+    enum Result { OK, UNAUTHORIZED, CONFLICT }
+
+    synchronized Long register(String username, String password) {
+        if (users.containsKey(username)) return null;
+        User user = new User(ids.incrementAndGet(), username, password);
+        users.put(username, user);
+        return user.id;
+    }
+
+    synchronized Long login(String username, String password) {
+        User user = users.get(username);
+        return user != null && user.password.equals(password) ? user.id : null;
+    }
+
+    void join(String username) {
+        apply(username, user -> {
+            if (user.index < 0) {
+                user.index = line.size();
+                line.add(user);
+            }
+            return true;
+        });
+    }
+
+    Result leave(String username) {
+        return apply(username, user -> {
+            if (user.index < 0) return false;
+            line.remove(user.index);
+            for (int k = user.index; k < line.size(); k++) line.get(k).index = k;
+            user.index = -1;
+            return true;
+        });
+    }
+
+    Result move(String username, int direction) {
+        return apply(username, user -> {
+            User other = neighbor(user, direction);
+            if (other == null || user.locked || other.locked) return false;
+            int i = user.index;
+            line.set(i, other);
+            line.set(other.index, user);
+            user.index = other.index;
+            other.index = i;
+            return true;
+        });
+    }
+
+    Result lock(String username, boolean locked) {
+        return apply(username, user -> {
+            user.locked = locked;
+            return true;
+        });
+    }
+
+    Result text(String username, String text) {
+        return apply(username, user -> {
+            user.text = text;
+            return true;
+        });
+    }
+
+    Result sendRequest(String username, int direction) {
+        return apply(username, user -> {
+            User other = neighbor(user, direction);
+            if (other == null || user.friends.contains(other.id)) return false;
+            other.requestsFrom.add(user.id);
+            return true;
+        });
+    }
+
+    Result answer(String username, int direction, boolean accept) {
+        return apply(username, user -> {
+            User other = neighbor(user, direction);
+            if (other == null || !user.requestsFrom.remove(other.id)) return false;
+            if (accept) {
+                user.friends.add(other.id);
+                other.friends.add(user.id);
+            }
+            return true;
+        });
+    }
+
+    private Result apply(String username, Mutation mutation) {
+        Map<String, SnapshotDTO> changed = new LinkedHashMap<>();
+        Result result = mutate(username, mutation, changed);
+        changed.forEach((user, snapshot) -> stomp.convertAndSendToUser(user, "/queue/snapshot", snapshot));
+        return result;
+    }
+
+    // fills in the snapshots of everyone who sat next to the user before or after the change
+    private synchronized Result mutate(String username, Mutation mutation, Map<String, SnapshotDTO> snapshots) {
+        User user = users.get(username);
+        if (user == null) return Result.UNAUTHORIZED;
+        Set<User> affected = new HashSet<>(around(user));
+        if (!mutation.apply(user)) return Result.CONFLICT;
+        affected.addAll(around(user));
+
+        for (User u : affected) {
+            if (u.index >= 0) snapshots.put(u.username, snapshotOf(u));
+        }
+        return Result.OK;
+    }
+
+    private List<User> around(User user) {
+        int i = user.index;
+        if (i < 0) return List.of();
+        return line.subList(Math.max(0, i - 1), Math.min(line.size(), i + 2));
+    }
+
+    private User neighbor(User user, int direction) {
+        if (user.index < 0) return null;
+        int j = user.index + direction;
+        return j >= 0 && j < line.size() ? line.get(j) : null;
+    }
+
+    private SnapshotDTO snapshotOf(User me) {
+        int i = me.index;
+        return new SnapshotDTO(
+                new SnapshotDTO.UserView(me.id, me.text, me.locked, i),
+                viewOf(me, i > 0 ? line.get(i - 1) : null),
+                viewOf(me, i + 1 < line.size() ? line.get(i + 1) : null),
+                new SnapshotDTO.CorridorInfo(line.size()));
+    }
+
+    private static SnapshotDTO.NeighborView viewOf(User me, User other) {
+        if (other == null) return null;
+        return new SnapshotDTO.NeighborView(other.id, other.text, other.locked,
+                me.friends.contains(other.id),
+                me.requestsFrom.contains(other.id),
+                other.requestsFrom.contains(me.id));
+    }
+
+    @FunctionalInterface
+    private interface Mutation {
+        boolean apply(User user);
+    }
+
+    private static final class User {
+
+        private final long id;
+        private final String username;
+        private final String password;
+        private final Set<Long> friends = new HashSet<>();
+        private final Set<Long> requestsFrom = new HashSet<>();
+        private String text = "";
+        private boolean locked;
+        private int index = -1;
+
+        private User(long id, String username, String password) {
+            this.id = id;
+            this.username = username;
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.agnostik.loadtest.standin;
+
+import com.agnostik.bot_runner.dto.AuthenticationResponseDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.function.Function;
+
+@RestController
+@RequiredArgsConstructor
+public class CorridorController {
+
+    private final Corridor corridor;
+
+    @PostMapping("/api/auth/register")
+    public ResponseEntity<AuthenticationResponseDTO> register(@RequestBody Map<String, String> body) {
+        Long id = corridor.register(body.get("username"), body.get("password"));
+        if (id == null) return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        return ResponseEntity.ok(authentication(id, body.get("username")));
+    }
+
+    @PostMapping("/api/auth/login")
+    public ResponseEntity<AuthenticationResponseDTO> login(@RequestBody Map<String, String> body) {
+        Long id = corridor.login(body.get("username"), body.get("password"));
+        if (id == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        return ResponseEntity.ok(authentication(id, body.get("username")));
+    }
+
+    @PostMapping("/api/presence/{action}")
+    public ResponseEntity<Void> presence(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String auth,
+                                         @PathVariable String action) {
+        return as(auth, username -> switch (action) {
+            case "moveLeft" -> corridor.move(username, -1);
+            case "moveRight" -> corridor.move(username, 1);
+            case "lock" -> corridor.lock(username, true);
+            case "unlock" -> corridor.lock(username, false);
+            case "leave" -> corridor.leave(username);
+            default -> null;
+        });
+    }
+
+    @PostMapping("/api/requests/{action}/{direction}")
+    public ResponseEntity<Void> requests(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String auth,
+                                         @PathVariable String action,
+                                         @PathVariable String direction) {
+        int side = "left".equals(direction) ? -1 : "right".equals(direction) ? 1 : 0;
+        if (side == 0) return ResponseEntity.badRequest().build();
+        return as(auth, username -> switch (action) {
+            case "send" -> corridor.sendRequest(username, side);
+            case "accept" -> corridor.answer(username, side, true);
+            case "reject" -> corridor.answer(username, side, false);
+            default -> null;
+        });
+    }
+
+    private ResponseEntity<Void> as(String auth, Function<String, Corridor.Result> call) {
+        String username = FakeTokens.username(auth).orElse(null);
+        if (username == null) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        Corridor.Result result = call.apply(username);
+        if (result == null) return ResponseEntity.notFound().build();
+        return switch (result) {
+            case OK -> ResponseEntity.ok().build();
+            case UNAUTHORIZED -> ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).build();
+        };
+    }
+
+    private static AuthenticationResponseDTO authentication(long id, String username) {
+        AuthenticationResponseDTO dto = new AuthenticationResponseDTO();
+        dto.setToken(FakeTokens.issue(username));
+        dto.setUserId(id);
+        dto.setUsername(username);
+        return dto;
+    }
+}
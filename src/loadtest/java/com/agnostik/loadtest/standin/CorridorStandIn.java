@@ -0,0 +1,17 @@
+package com.agnostik.loadtest.standin;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Local stand-in for the corridor backend plus a fake LLM, enough for the bot runner to log
+ * in, receive snapshots and act without the real services. Runs on its own with
+ * {@code ./gradlew standIn}, or in-process from {@link com.agnostik.loadtest.LoadTest}.
+ */
+@SpringBootApplication
+public class CorridorStandIn {
+
+    public static void main(String[] args) {
+        SpringApplication.run(CorridorStandIn.class, args);
+    }
+}
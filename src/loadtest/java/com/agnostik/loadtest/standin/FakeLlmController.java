@@ -0,0 +1,97 @@
+package com.agnostik.loadtest.standin;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * OpenAI-compatible chat completions endpoint that answers with a random but valid action
+ * after a configurable delay. Streaming requests get the same answer split into SSE chunks,
+ * and combined batch prompts get a JSON array of the requested size.
+ */
+@RestController
+public class FakeLlmController {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern BATCH_SIZE = Pattern.compile("JSON array of (\\d+)");
+    private static final int STREAM_CHUNK = 12;
+    private static final List<String> MOVES = List.of("left", "right", "none", "none");
+    private static final List<String> LOCKS = List.of("lock", "unlock", "none", "none", "none");
+    private static final List<String> REQUESTS = List.of("left", "right", "accept", "reject", "none", "none", "none");
+    private static final List<String> TEXTS = List.of(
+            "Howdy partner, here comes the sun and I say it's all right",
+            "Well shucks, all you need is love out on this dusty trail",
+            "Yesterday all my troubles seemed so far away from this corridor",
+            "Giddy up, we all live in a yellow submarine round these parts",
+            "");
+
+    @Value("${standin.llm.latency-ms:300}")
+    private long latencyMs;
+
+    @Value("${standin.llm.latency-jitter-ms:200}")
+    private long jitterMs;
+
+    @PostMapping("/llm/chat/completions")
+    public ResponseEntity<String> complete(@RequestBody Map<String, Object> body) throws Exception {
+        Thread.sleep(latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs) : 0));
+
+        String content = answer(promptOf(body));
+        if (Boolean.TRUE.equals(body.get("stream"))) {
+            return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(sse(content));
+        }
+        Map<String, Object> response = Map.of(
+                "choices", List.of(Map.of("message", Map.of("role", "assistant", "content", content))),
+                "usage", Map.of("prompt_tokens", promptOf(body).length() / 4, "completion_tokens", content.length() / 4));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(MAPPER.writeValueAsString(response));
+    }
+
+    private static String promptOf(Map<String, Object> body) {
+        if (body.get("messages") instanceof List<?> messages && !messages.isEmpty()
+                && messages.get(messages.size() - 1) instanceof Map<?, ?> last) {
+            Object content = last.get("content");
+            return content != null ? content.toString() : "";
+        }
+        return "";
+    }
+
+    private static String answer(String prompt) throws Exception {
+        Matcher batch = BATCH_SIZE.matcher(prompt);
+        if (!batch.find()) return action();
+        int n = Integer.parseInt(batch.group(1));
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(action());
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String action() throws Exception {
+        var rnd = ThreadLocalRandom.current();
+        return MAPPER.writeValueAsString(Map.of(
+                "move", MOVES.get(rnd.nextInt(MOVES.size())),
+                "lock", LOCKS.get(rnd.nextInt(LOCKS.size())),
+                "text", TEXTS.get(rnd.nextInt(TEXTS.size())),
+                "request", REQUESTS.get(rnd.nextInt(REQUESTS.size()))));
+    }
+
+    private static String sse(String content) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < content.length(); i += STREAM_CHUNK) {
+            String delta = content.substring(i, Math.min(content.length(), i + STREAM_CHUNK));
+            Map<String, Object> chunk = Map.of("choices", List.of(Map.of("delta", Map.of("content", delta))));
+            sb.append("data: ").append(MAPPER.writeValueAsString(chunk)).append("\n\n");
+        }
+        return sb.append("data: [DONE]\n\n").toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.agnostik.loadtest.standin;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unsigned JWT-shaped tokens. They carry the username and an exp claim, which is all the
+ * bot's token cache reads; nothing here is meant to be secure.
+ */
+final class FakeTokens {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final String HEADER = ENCODER.encodeToString("{\"alg\":\"none\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+    private static final long TTL_SECONDS = TimeUnit.HOURS.toSeconds(1);
+
+    private FakeTokens() {
+    }
+
+    static String issue(String username) {
+        long exp = System.currentTimeMillis() / 1000 + TTL_SECONDS;
+        try {
+            byte[] payload = MAPPER.writeValueAsBytes(Map.of("sub", username, "exp", exp));
+            return HEADER + "." + ENCODER.encodeToString(payload) + ".standin";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Optional<String> username(String bearer) {
+        if (bearer == null) return Optional.empty();
+        String token = bearer.startsWith("Bearer ") ? bearer.substring(7) : bearer;
+        String[] parts = token.split("\\.");
+        if (parts.length != 3) return Optional.empty();
+        try {
+            JsonNode payload = MAPPER.readTree(Base64.getUrlDecoder().decode(parts[1]));
+            if (payload.path("exp").asLong() * 1000 < System.currentTimeMillis()) return Optional.empty();
+            return Optional.ofNullable(payload.path("sub").textValue());
+        } catch (Exception e) {
+            return Optional.empty();
+        }
+    }
+}
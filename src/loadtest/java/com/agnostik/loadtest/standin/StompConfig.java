@@ -0,0 +1,91 @@
+package com.agnostik.loadtest.standin;
+
+import com.agnostik.bot_runner.dto.TextUpdateDTO;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * STOMP side of the stand-in: bots authenticate with the same bearer token in the CONNECT
+ * frame, get their snapshot on /user/queue/snapshot as soon as they subscribe, and type
+ * through /app/text.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class StompConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws");
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/queue");
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(new ChannelInterceptor() {
+            @Override
+            public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+                if (accessor != null && StompCommand.CONNECT.equals(accessor.getCommand())) {
+                    String username = FakeTokens.username(accessor.getFirstNativeHeader("Authorization"))
+                            .orElseThrow(() -> new IllegalArgumentException("invalid token"));
+                    Principal user = () -> username;
+                    accessor.setUser(user);
+                }
+                return message;
+            }
+        });
+    }
+
+    @Controller
+    static class Events {
+
+        // the subscribe event fires before the broker has registered the subscription
+        private static final Duration FIRST_SNAPSHOT_DELAY = Duration.ofMillis(100);
+
+        private final Corridor corridor;
+        private final TaskScheduler scheduler;
+
+        Events(Corridor corridor, @Qualifier("messageBrokerTaskScheduler") TaskScheduler scheduler) {
+            this.corridor = corridor;
+            this.scheduler = scheduler;
+        }
+
+        @EventListener
+        public void onSubscribe(SessionSubscribeEvent event) {
+            Principal user = event.getUser();
+            if (user == null) return;
+            scheduler.schedule(() -> corridor.join(user.getName()), Instant.now().plus(FIRST_SNAPSHOT_DELAY));
+        }
+
+        @MessageMapping("/text")
+        public void text(TextUpdateDTO update, Principal user) {
+            if (user != null) corridor.text(user.getName(), update.getText());
+        }
+    }
+}
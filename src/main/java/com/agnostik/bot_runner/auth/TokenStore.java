@@ -0,0 +1,133 @@
+package com.agnostik.bot_runner.auth;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * On-disk JWT cache keyed by username. Writes are coalesced and flushed periodically, so a
+ * fleet logging in at startup produces a handful of file writes rather than one per bot.
+ * The file holds live bearer tokens, so it is created readable by the owner only.
+ */
+@Component
+@Slf4j
+public class TokenStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AppProperties.TokenCache cfg;
+    private final Path path;
+    private final Map<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    public TokenStore(AppProperties props) {
+        this.cfg = props.getTokenCache();
+        this.path = Path.of(cfg.getPath());
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!cfg.isEnabled() || !Files.exists(path)) return;
+        try {
+            Map<String, CachedToken> stored = MAPPER.readValue(path.toFile(), new TypeReference<Map<String, CachedToken>>() {});
+            long now = System.currentTimeMillis();
+            stored.forEach((username, token) -> {
+                if (token != null && token.token() != null && token.expiresAt() > now) tokens.put(username, token);
+            });
+            log.info("loaded {} cached tokens from {}", tokens.size(), path);
+        } catch (IOException e) {
+            log.warn("could not read token cache {}: {}", path, e.getMessage());
+        }
+    }
+
+    public Optional<CachedToken> usable(String username) {
+        if (!cfg.isEnabled()) return Optional.empty();
+        CachedToken token = tokens.get(username);
+        if (token == null || token.expiresAt() - cfg.getRefreshBeforeMs() <= System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(token);
+    }
+
+    public CachedToken put(String username, String jwt) {
+        CachedToken token = new CachedToken(jwt, expiryOf(jwt));
+        if (cfg.isEnabled()) {
+            tokens.put(username, token);
+            dirty.set(true);
+        }
+        return token;
+    }
+
+    public void evict(String username) {
+        if (tokens.remove(username) != null) dirty.set(true);
+    }
+
+    public long refreshAt(CachedToken token) {
+        return token.expiresAt() - cfg.getRefreshBeforeMs();
+    }
+
+    @Scheduled(fixedDelayString = "${app.token-cache.flush-interval-ms:2000}")
+    public void flush() {
+        if (!cfg.isEnabled() || !dirty.compareAndSet(true, false)) return;
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            // a fresh owner-only file; the move carries its permissions over to the cache
+            Files.deleteIfExists(tmp);
+            if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+                Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } else {
+                Files.createFile(tmp);
+            }
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                MAPPER.writeValue(out, Map.copyOf(tokens));
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            log.warn("could not write token cache {}: {}", path, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private long expiryOf(String jwt) {
+        long fallback = System.currentTimeMillis() + cfg.getDefaultTtlMs();
+        if (jwt == null) return fallback;
+        String[] parts = jwt.split("\\.");
+        if (parts.length < 2) return fallback;
+        try {
+            byte[] payload = Base64.getUrlDecoder().decode(parts[1]);
+            JsonNode exp = MAPPER.readTree(new String(payload, StandardCharsets.UTF_8)).get("exp");
+            return exp != null && exp.canConvertToLong() ? exp.asLong() * 1000 : fallback;
+        } catch (IllegalArgumentException | IOException e) {
+            return fallback;
+        }
+    }
+
+    public record CachedToken(String token, long expiresAt) {}
+}
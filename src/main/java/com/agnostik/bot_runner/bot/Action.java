@@ -0,0 +1,3 @@
+package com.agnostik.bot_runner.bot;
+
+record Action(String move, String lock, String text, String request) {}
@@ -0,0 +1,73 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session view of the bot's lock state that sits between a decision and the backend.
+ * It combines the last snapshot with the lock/unlock call still in flight, so a call that
+ * would not change anything is dropped. Every request bumps a generation, which lets a
+ * newer decision supersede a delayed unlock that has not fired yet.
+ */
+final class ActionPlanner {
+
+    // a snapshot normally confirms a call well within this; past it the expectation is dropped
+    private static final long EXPECTATION_TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final BotMetrics metrics;
+
+    private Boolean observedLocked;
+    private Boolean expectedLocked;
+    private long expectedAt;
+    private long generation;
+
+    ActionPlanner(BotMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    synchronized void observe(SnapshotDTO.UserView me) {
+        if (me == null) return;
+        observedLocked = me.isLocked();
+        if (expectedLocked != null && expectedLocked == me.isLocked()) expectedLocked = null;
+    }
+
+    /**
+     * Records the intent to move to the given lock state.
+     *
+     * @return true if the backend call is needed, false if the state is already in effect or in flight
+     */
+    synchronized boolean claim(boolean locked) {
+        generation++;
+        Boolean current = effectiveLocked();
+        if (current != null && current == locked) {
+            metrics.actionSuppressed(locked ? "lock" : "unlock");
+            return false;
+        }
+        expectedLocked = locked;
+        expectedAt = System.nanoTime();
+        return true;
+    }
+
+    synchronized void failed(boolean locked) {
+        if (expectedLocked != null && expectedLocked == locked) expectedLocked = null;
+    }
+
+    // counts a call that was merged away before it was planned, e.g. an unlock immediately undone by a lock
+    void merged(String action) {
+        metrics.actionSuppressed(action);
+    }
+
+    synchronized boolean isLocked() {
+        return Boolean.TRUE.equals(effectiveLocked());
+    }
+
+    synchronized long generation() {
+        return generation;
+    }
+
+    private Boolean effectiveLocked() {
+        if (expectedLocked != null && System.nanoTime() - expectedAt > EXPECTATION_TTL_NANOS) expectedLocked = null;
+        return expectedLocked != null ? expectedLocked : observedLocked;
+    }
+}
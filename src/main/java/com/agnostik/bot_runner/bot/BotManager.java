@@ -1,47 +1,208 @@
 package com.agnostik.bot_runner.bot;
 
 import com.agnostik.bot_runner.config.AppProperties;
-import com.agnostik.bot_runner.config.LlmProperties;
-import com.agnostik.bot_runner.llm.LlmService;
-import com.agnostik.bot_runner.http.HttpClientService;
-import com.agnostik.bot_runner.ws.StompClientService;
+import com.agnostik.bot_runner.shard.ShardChangedEvent;
+import com.agnostik.bot_runner.shard.ShardCoordinator;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
-import org.springframework.scheduling.annotation.Scheduled;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class BotManager {
 
     private final AppProperties props;
-    private final HttpClientService http;
-    private final StompClientService ws;
-    private final LlmService llm;
-    private final LlmProperties llmProps;
+    private final BotRuntime runtime;
+    private final BotRoster roster;
+    private final BotScheduler scheduler;
+    private final RuleEngine rules;
+    private final MeterRegistry registry;
+    private final ShardCoordinator shard;
 
-    private final List<BotSession> sessions = new ArrayList<>();
+    private final Map<String, BotSession> sessions = new ConcurrentHashMap<>();
+    private final Set<String> starting = ConcurrentHashMap.newKeySet();
+    // still leaving the corridor; restarting before the leave lands would race it for the seat
+    private final Set<String> draining = ConcurrentHashMap.newKeySet();
+    private final List<Disposable> launches = new CopyOnWriteArrayList<>();
+    private volatile boolean closing;
 
     @PostConstruct
+    void registerGauges() {
+        registry.gauge("bot.sessions.active", sessions, Map::size);
+        registry.gauge("bot.sessions.typing", sessions, s -> s.values().stream().filter(BotSession::isTyping).count());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
     public void startAll() {
-        if (props.getBots() == null) return;
-        for (AppProperties.BotCredential cred : props.getBots()) {
-            BotSession session = new BotSession(cred, http, ws, llm, llmProps);
-            session.start();
-            sessions.add(session);
+        // ReplayRunner drives offline sessions instead
+        if (props.getRecord().isReplay() || roster.size() == 0) return;
+        launch(Flux.fromStream(roster::credentials).filter(cred -> shard.owns(cred.getUsername())));
+    }
+
+    // stops bots that moved to another instance first, then starts the ones that moved here
+    @EventListener(ShardChangedEvent.class)
+    public void rebalance() {
+        List<String> released = sessions.keySet().stream().filter(username -> !shard.owns(username)).toList();
+        released.forEach(this::stopBot);
+        Flux<AppProperties.BotCredential> acquired = Flux.fromStream(roster::credentials)
+                .filter(cred -> shard.owns(cred.getUsername()) && !isRunning(cred.getUsername()));
+        log.info("shard membership changed: stopping {} bot(s), starting newly owned ones", released.size());
+        launch(acquired);
+    }
+
+    public void startBot(AppProperties.BotCredential cred) {
+        launch(Flux.just(cred));
+    }
+
+    public void stopBot(String username) {
+        BotSession session = sessions.remove(username);
+        if (session == null) return;
+        scheduler.unregister(session);
+        rules.unregister(session);
+        session.stop();
+    }
+
+    // leaves the corridor before closing, so a removed bot does not linger as a ghost seat
+    public void drainBot(String username) {
+        // marked before the session leaves the map, so isRunning never sees a gap
+        boolean marked = draining.add(username);
+        BotSession session = sessions.remove(username);
+        if (session == null) {
+            // an earlier drain of the same bot still owns the mark
+            if (marked) draining.remove(username);
+            return;
+        }
+        scheduler.unregister(session);
+        rules.unregister(session);
+        session.leaveAsync()
+                .timeout(Duration.ofMillis(props.getStartup().getTimeoutMs()))
+                .onErrorResume(e -> Mono.empty())
+                .doFinally(signal -> {
+                    session.stop();
+                    draining.remove(username);
+                    restartIfWanted(username);
+                })
+                .subscribe();
+    }
+
+    public boolean isRunning(String username) {
+        return sessions.containsKey(username) || starting.contains(username) || draining.contains(username);
+    }
+
+    public int runningCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Brings the running set in line with the roster. Added bots are started. Removed bots are
+     * drained. Changed credentials are swapped into the running sessions. Sessions whose
+     * entry did not change keep running without being touched.
+     */
+    public synchronized RosterDiff applyRoster() {
+        Map<String, AppProperties.BotCredential> desired = new LinkedHashMap<>();
+        roster.credentials()
+                .filter(cred -> shard.owns(cred.getUsername()))
+                .forEach(cred -> desired.putIfAbsent(cred.getUsername(), cred));
+        Map<String, AppProperties.BotCredential> running = new HashMap<>();
+        sessions.forEach((username, session) -> running.put(username, session.credential()));
+
+        Set<String> pending = new HashSet<>(starting);
+        pending.addAll(draining);
+        RosterDiff.Plan plan = RosterDiff.plan(running, desired, pending);
+        plan.drain().forEach(this::drainBot);
+        plan.update().forEach(this::reconfigure);
+        launch(Flux.fromIterable(plan.start()));
+        return plan.diff();
+    }
+
+    private void reconfigure(AppProperties.BotCredential next) {
+        BotSession session = sessions.get(next.getUsername());
+        if (session == null) return;
+        boolean reschedule = RosterDiff.needsReschedule(session.credential(), next);
+        session.reconfigure(next);
+        if (reschedule) {
+            scheduler.unregister(session);
+            rules.unregister(session);
+            schedule(session);
         }
     }
 
-    @Scheduled(fixedDelay = 8000)
-    public void tick() {
-        for (BotSession bot : sessions) {
-            try {
-                bot.decideAndAct();
-            } catch (Exception ignored) {
-            }
+    // a bot put back into the roster, or handed back to this shard, while it drained was skipped then
+    private void restartIfWanted(String username) {
+        if (closing || !shard.owns(username)) return;
+        roster.find(username).ifPresent(this::startBot);
+    }
+
+    // LLM bots keep their own cadence; rule bots all share the rule engine's pass
+    private void schedule(BotSession session) {
+        if (Boolean.TRUE.equals(session.credential().getUseLlm())) scheduler.register(session);
+        else rules.register(session, true);
+    }
+
+    private void launch(Flux<AppProperties.BotCredential> creds) {
+        StartupReport report = new StartupReport();
+        launches.removeIf(Disposable::isDisposed);
+        launches.add(staggered(creds, props.getStartup(), cred -> start(cred, report))
+                .doFinally(signal -> report.log())
+                .subscribe());
+    }
+
+    // starts begin at most connectsPerSecond apart and at most concurrency run at once
+    static <T> Flux<Void> staggered(Flux<T> items, AppProperties.Startup cfg, Function<T, Mono<Void>> start) {
+        if (cfg.getConnectsPerSecond() > 0) {
+            items = items.delayElements(Duration.ofNanos((long) (1_000_000_000L / cfg.getConnectsPerSecond())));
         }
+        return items.flatMap(start, Math.max(1, cfg.getConcurrency()));
+    }
+
+    private Mono<Void> start(AppProperties.BotCredential cred, StartupReport report) {
+        String username = cred.getUsername();
+        if (sessions.containsKey(username) || draining.contains(username) || !starting.add(username)) return Mono.empty();
+        BotSession session = new BotSession(cred, runtime);
+        Mono<Boolean> attempt = report.time("total", session.startAsync(report))
+                .timeout(Duration.ofMillis(props.getStartup().getTimeoutMs()))
+                .then(Mono.fromCallable(() -> {
+                    // the shard or the roster may have moved on while this bot was connecting
+                    AppProperties.BotCredential latest = roster.find(username).orElse(null);
+                    if (!shard.owns(username) || latest == null) {
+                        session.stop();
+                        return false;
+                    }
+                    session.reconfigure(latest);
+                    // only a scheduled session counts as running; if scheduling throws, the session is stopped
+                    schedule(session);
+                    sessions.put(username, session);
+                    return true;
+                }))
+                .doOnError(e -> session.stop());
+        return report.track(username, attempt)
+                .doFinally(signal -> starting.remove(username));
+    }
+
+    @PreDestroy
+    public void stopAll() {
+        closing = true;
+        launches.forEach(Disposable::dispose);
+        for (String username : List.copyOf(sessions.keySet())) stopBot(username);
     }
 }
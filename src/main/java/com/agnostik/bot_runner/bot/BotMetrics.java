@@ -0,0 +1,83 @@
+package com.agnostik.bot_runner.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class BotMetrics {
+
+    private final Timer firstFrameStreaming;
+    private final Timer firstFrameBlocking;
+    private final Counter duplicateRequests;
+    private final MeterRegistry registry;
+    // a restarted bot can overlap its draining predecessor, so both share one meter until the last lets go
+    private final Map<String, SharedCounter> snapshots = new ConcurrentHashMap<>();
+
+    public BotMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.firstFrameStreaming = firstFrameTimer(registry, "stream");
+        this.firstFrameBlocking = firstFrameTimer(registry, "blocking");
+        this.duplicateRequests = Counter.builder("bot.requests.suppressed")
+                .description("Friend-request calls skipped because the request was already handled or in flight")
+                .register(registry);
+    }
+
+    public void requestSuppressed() {
+        duplicateRequests.increment();
+    }
+
+    public Counter snapshots(String bot) {
+        return snapshots.compute(bot, (name, current) -> {
+            if (current != null) {
+                current.sessions++;
+                return current;
+            }
+            return new SharedCounter(Counter.builder("bot.snapshots")
+                    .description("Snapshot frames received per bot")
+                    .tag("bot", name)
+                    .register(registry));
+        }).counter;
+    }
+
+    /** Called once per {@link #snapshots}; the meter is removed with its last session. */
+    public void forget(String bot) {
+        snapshots.computeIfPresent(bot, (name, shared) -> {
+            if (--shared.sessions > 0) return shared;
+            registry.remove(shared.counter);
+            return null;
+        });
+    }
+
+    public void actionSuppressed(String action) {
+        registry.counter("bot.actions.suppressed", "action", action).increment();
+    }
+
+    public void timeToFirstFrame(boolean streaming, long nanos) {
+        (streaming ? firstFrameStreaming : firstFrameBlocking).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static Timer firstFrameTimer(MeterRegistry registry, String mode) {
+        return Timer.builder("bot.llm.time.to.first.frame")
+                .description("Time from the start of an LLM decision to the first typed frame")
+                .tag("mode", mode)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    // only touched inside the map's compute functions
+    private static final class SharedCounter {
+
+        private final Counter counter;
+        private int sessions = 1;
+
+        private SharedCounter(Counter counter) {
+            this.counter = counter;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Every bot this runner should drive: the explicit {@code app.bots} entries followed by the
+ * generated {@code app.fleet}. Fleet credentials are built on demand while the stream is
+ * consumed, so a large fleet costs nothing at bind time, and fixed texts are interned so
+ * bots that share a line share one string. Behavior names are checked against the declared
+ * rule behaviors when a roster is built, so a typo fails at startup or reload, not when the
+ * bot connects. {@link #replace} swaps in a new roster as one unit; readers always see either
+ * the old one or the new one.
+ */
+@Component
+public class BotRoster {
+
+    private static final String LLM = "llm";
+    private static final String FIXED = "fixed";
+
+    private final Set<String> ruleNames;
+    private volatile Layout layout;
+
+    public BotRoster(AppProperties props) {
+        // RuleEngine always declares "random", even when the config does not
+        Set<String> declared = new HashSet<>(props.getRules().getBehaviors().keySet());
+        declared.add("random");
+        this.ruleNames = Set.copyOf(declared);
+        this.layout = new Layout(props.getBots(), props.getFleet(), ruleNames);
+    }
+
+    public void replace(List<AppProperties.BotCredential> bots, AppProperties.Fleet fleet) {
+        layout = new Layout(bots, fleet, ruleNames);
+    }
+
+    public int size() {
+        Layout current = layout;
+        return current.explicit.size() + Math.max(0, current.fleet.getCount());
+    }
+
+    public Stream<AppProperties.BotCredential> credentials() {
+        Layout current = layout;
+        Stream<AppProperties.BotCredential> generated = IntStream.range(0, Math.max(0, current.fleet.getCount()))
+                .mapToObj(i -> current.generate(current.fleet.getStartIndex() + i));
+        return Stream.concat(current.explicit.stream(), generated);
+    }
+
+    public Optional<AppProperties.BotCredential> find(String username) {
+        Layout current = layout;
+        AppProperties.BotCredential cred = current.byName.get(username);
+        if (cred != null) return Optional.of(cred);
+        AppProperties.Fleet fleet = current.fleet;
+        if (username == null || !username.startsWith(fleet.getPrefix())) return Optional.empty();
+        String suffix = username.substring(fleet.getPrefix().length());
+        int index;
+        try {
+            index = Integer.parseInt(suffix);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        boolean inFleet = suffix.equals(Integer.toString(index))
+                && index >= fleet.getStartIndex() && index < fleet.getStartIndex() + fleet.getCount();
+        return inFleet ? Optional.of(current.generate(index)) : Optional.empty();
+    }
+
+    private static final class Layout {
+
+        private final List<AppProperties.BotCredential> explicit;
+        private final Map<String, AppProperties.BotCredential> byName = new HashMap<>();
+        private final AppProperties.Fleet fleet;
+        private final List<String> textPool;
+        private final double llmShare;
+        // rule behaviors for the non-LLM share, with cumulative weights over that share
+        private final List<String> ruleBehaviors = new ArrayList<>();
+        private final List<Double> ruleCumulative = new ArrayList<>();
+
+        Layout(List<AppProperties.BotCredential> bots, AppProperties.Fleet fleet, Set<String> ruleNames) {
+            this.explicit = bots != null ? bots : List.of();
+            this.fleet = fleet != null ? fleet : new AppProperties.Fleet();
+            this.textPool = this.fleet.getTextPool().stream().map(String::intern).toList();
+            this.llmShare = llmShare(this.fleet.getBehaviorMix(), ruleNames);
+            double ruleTotal = 0;
+            for (Map.Entry<String, Double> e : this.fleet.getBehaviorMix().entrySet()) {
+                if (LLM.equals(e.getKey())) continue;
+                ruleTotal += weight(e.getValue());
+                ruleBehaviors.add(FIXED.equals(e.getKey()) ? null : e.getKey());
+                ruleCumulative.add(ruleTotal);
+            }
+            for (int i = 0; i < ruleCumulative.size(); i++) {
+                ruleCumulative.set(i, ruleTotal > 0 ? ruleCumulative.get(i) / ruleTotal : 1.0);
+            }
+            for (AppProperties.BotCredential cred : explicit) {
+                if (cred.getUsername() == null || cred.getUsername().isBlank()) {
+                    throw new IllegalStateException("roster entry without a username");
+                }
+                if (cred.getBehavior() != null && !cred.getBehavior().isBlank() && !ruleNames.contains(cred.getBehavior())) {
+                    throw new IllegalStateException("unknown rule behavior '" + cred.getBehavior() + "' for "
+                            + cred.getUsername() + ", expected one of " + ruleNames);
+                }
+                if (cred.getFixedText() != null) cred.setFixedText(cred.getFixedText().intern());
+                byName.putIfAbsent(cred.getUsername(), cred);
+            }
+        }
+
+        private AppProperties.BotCredential generate(int index) {
+            String name = fleet.getPrefix() + index;
+            AppProperties.BotCredential cred = new AppProperties.BotCredential();
+            cred.setUsername(name);
+            cred.setPassword(fleet.getPasswordTemplate()
+                    .replace("{name}", name)
+                    .replace("{index}", Integer.toString(index)));
+            // keyed on the name, so a bot keeps its behavior when the fleet is resized
+            double draw = (spread(name.hashCode()) >>> 1) / (double) (1L << 31);
+            cred.setUseLlm(draw < llmShare);
+            if (!cred.getUseLlm()) cred.setBehavior(ruleBehavior((draw - llmShare) / (1 - llmShare)));
+            if (!textPool.isEmpty()) cred.setFixedText(textPool.get(Math.floorMod(index, textPool.size())));
+            return cred;
+        }
+
+        // null means the default rule behavior
+        private String ruleBehavior(double draw) {
+            for (int i = 0; i < ruleCumulative.size(); i++) {
+                if (draw < ruleCumulative.get(i)) return ruleBehaviors.get(i);
+            }
+            return null;
+        }
+    }
+
+    // murmur3 finalizer: neighboring names hash to neighboring ints, this scatters them
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static double llmShare(Map<String, Double> mix, Set<String> rules) {
+        double total = 0;
+        double llm = 0;
+        for (Map.Entry<String, Double> e : mix.entrySet()) {
+            if (!LLM.equals(e.getKey()) && !FIXED.equals(e.getKey()) && !rules.contains(e.getKey())) {
+                throw new IllegalStateException("unknown fleet behavior '" + e.getKey() + "', expected llm, fixed or one of " + rules);
+            }
+            total += weight(e.getValue());
+            if (LLM.equals(e.getKey())) llm += weight(e.getValue());
+        }
+        return total > 0 ? llm / total : 0;
+    }
+
+    private static double weight(Double value) {
+        return value != null ? Math.max(0, value) : 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.auth.TokenStore;
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.http.HttpClientService;
+import com.agnostik.bot_runner.llm.LlmBatcher;
+import com.agnostik.bot_runner.record.Recorder;
+import com.agnostik.bot_runner.ws.StompClientService;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Component
+@RequiredArgsConstructor
+public class BotRuntime {
+
+    private final AppProperties props;
+    private final HttpClientService http;
+    private final StompClientService ws;
+    private final LlmBatcher llm;
+    private final LlmProperties llmProps;
+    private final BotTimer timer;
+    private final BotScheduler scheduler;
+    private final RuleEngine rules;
+    private final TypingPlanner typingPlanner;
+    private final TokenStore tokens;
+    private final DecisionCache decisions;
+    private final BotMetrics metrics;
+    private final Recorder recorder;
+}
@@ -0,0 +1,199 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * Drives each bot on its own fixed-rate deadline. Bots are spread over a small set of
+ * single-threaded shards by username and start at a random phase, so one slow bot only
+ * delays the bots on its shard and the fleet does not fire in one burst.
+ */
+@Component
+@Slf4j
+public class BotScheduler {
+
+    private final LongSupplier clock;
+    private final long periodNanos;
+    private final long jitterNanos;
+    private final ScheduledExecutorService[] shards;
+    private final Map<BotSession, Slot> slots = new ConcurrentHashMap<>();
+
+    private final LongAdder ticks = new LongAdder();
+    private final LongAdder lagSumNanos = new LongAdder();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private final LongAdder skippedSlots = new LongAdder();
+    private final LongAdder triggers = new LongAdder();
+    private final Timer lagTimer;
+    private final Counter skippedCounter;
+    private final Counter triggerCounter;
+
+    @Autowired
+    public BotScheduler(AppProperties props, MeterRegistry registry) {
+        this(props, registry, System::nanoTime, BotScheduler::newShard);
+    }
+
+    // tests drive the clock and the shards by hand
+    BotScheduler(AppProperties props, MeterRegistry registry, LongSupplier clock, IntFunction<ScheduledExecutorService> shardFactory) {
+        this.clock = clock;
+        this.lagTimer = Timer.builder("bot.scheduler.lag")
+                .description("How late a decision tick started relative to its slot")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.skippedCounter = registry.counter("bot.scheduler.skipped.slots");
+        this.triggerCounter = registry.counter("bot.scheduler.triggers");
+        registry.gauge("bot.scheduler.bots", slots, Map::size);
+        AppProperties.Scheduler cfg = props.getScheduler();
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getPeriodMs());
+        this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getJitterMs());
+        this.shards = new ScheduledExecutorService[Math.max(1, cfg.getParallelism())];
+        for (int i = 0; i < shards.length; i++) shards[i] = shardFactory.apply(i);
+    }
+
+    private static ScheduledExecutorService newShard(int index) {
+        return Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bot-scheduler-" + index);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void register(BotSession bot) {
+        ScheduledExecutorService shard = shards[Math.floorMod(bot.getUsername().hashCode(), shards.length)];
+        Slot slot = new Slot(bot, shard);
+        if (slots.putIfAbsent(bot, slot) != null) return;
+        slot.baseNanos = clock.getAsLong() + ThreadLocalRandom.current().nextLong(periodNanos + 1);
+        slot.scheduleNext();
+    }
+
+    // debounced one-off decision outside the regular cadence; triggers that arrive while one
+    // is pending are folded into it
+    public void trigger(BotSession bot, long delayMs) {
+        Slot slot = slots.get(bot);
+        if (slot != null) slot.trigger(delayMs);
+    }
+
+    public void unregister(BotSession bot) {
+        Slot slot = slots.remove(bot);
+        if (slot != null) slot.cancel();
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    @Scheduled(fixedDelayString = "${app.scheduler.lag-report-interval-ms:60000}")
+    public void reportLag() {
+        long count = ticks.sumThenReset();
+        long sum = lagSumNanos.sumThenReset();
+        long max = maxLagNanos.getAndSet(0);
+        long skipped = skippedSlots.sumThenReset();
+        long triggered = triggers.sumThenReset();
+        if (count == 0) return;
+        log.info("scheduler: bots={} ticks={} avgLagMs={} maxLagMs={} skippedSlots={} triggers={}",
+                slots.size(), count,
+                TimeUnit.NANOSECONDS.toMillis(sum / count),
+                TimeUnit.NANOSECONDS.toMillis(max),
+                skipped, triggered);
+    }
+
+    private void recordLag(BotSession bot, long lagNanos) {
+        long lag = Math.max(0, lagNanos);
+        lagTimer.record(lag, TimeUnit.NANOSECONDS);
+        ticks.increment();
+        lagSumNanos.add(lag);
+        maxLagNanos.accumulateAndGet(lag, Math::max);
+        if (lag > periodNanos / 2) {
+            log.debug("tick for {} ran {} ms late", bot.getUsername(), TimeUnit.NANOSECONDS.toMillis(lag));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        slots.values().forEach(Slot::cancel);
+        slots.clear();
+        for (ScheduledExecutorService shard : shards) shard.shutdownNow();
+    }
+
+    private final class Slot implements Runnable {
+
+        private final BotSession bot;
+        private final ScheduledExecutorService executor;
+        private final AtomicBoolean triggerPending = new AtomicBoolean(false);
+        private long baseNanos;
+        private long fireAtNanos;
+        private volatile ScheduledFuture<?> future;
+        private volatile boolean cancelled;
+
+        private Slot(BotSession bot, ScheduledExecutorService executor) {
+            this.bot = bot;
+            this.executor = executor;
+        }
+
+        private void scheduleNext() {
+            long jitter = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos) : 0;
+            fireAtNanos = baseNanos + jitter;
+            future = executor.schedule(this, Math.max(0, fireAtNanos - clock.getAsLong()), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            long startedAt = clock.getAsLong();
+            recordLag(bot, startedAt - fireAtNanos);
+            try {
+                bot.decideAndActAsync(false).subscribe(null, ignored -> {});
+            } catch (Exception ignored) {
+            }
+
+            baseNanos += periodNanos;
+            if (baseNanos < startedAt) {
+                // fell a whole period behind: skip the missed slots instead of firing them back to back
+                long missed = (startedAt - baseNanos) / periodNanos + 1;
+                baseNanos += missed * periodNanos;
+                skippedSlots.add(missed);
+                skippedCounter.increment(missed);
+            }
+            if (!cancelled) scheduleNext();
+        }
+
+        private void trigger(long delayMs) {
+            if (cancelled || !triggerPending.compareAndSet(false, true)) return;
+            triggers.increment();
+            triggerCounter.increment();
+            executor.schedule(() -> {
+                triggerPending.set(false);
+                if (cancelled) return;
+                try {
+                    bot.decideAndActAsync(true).subscribe(null, ignored -> {});
+                } catch (Exception ignored) {
+                }
+            }, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> f = future;
+            if (f != null) f.cancel(false);
+        }
+    }
+}
@@ -1,355 +1,620 @@
 package com.agnostik.bot_runner.bot;
 
+import com.agnostik.bot_runner.auth.TokenStore;
 import com.agnostik.bot_runner.config.AppProperties;
 import com.agnostik.bot_runner.config.LlmProperties;
 import com.agnostik.bot_runner.dto.AuthenticationResponseDTO;
 import com.agnostik.bot_runner.dto.SnapshotDTO;
 import com.agnostik.bot_runner.http.HttpClientService;
-import com.agnostik.bot_runner.llm.LlmService;
+import com.agnostik.bot_runner.llm.IncrementalJsonParser;
+import com.agnostik.bot_runner.llm.LlmBatcher;
+import com.agnostik.bot_runner.llm.LlmSaturatedException;
+import com.agnostik.bot_runner.llm.LlmUnavailableException;
+import com.agnostik.bot_runner.record.RecordLog;
+import com.agnostik.bot_runner.record.Recorder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import com.agnostik.bot_runner.ws.StompClientService;
+import com.agnostik.bot_runner.ws.StompConnection;
+import reactor.core.publisher.Mono;
 
 
-import jakarta.annotation.PreDestroy;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
-@RequiredArgsConstructor
+@Slf4j
 public class BotSession {
 
     private static final ObjectMapper MAPPER = new ObjectMapper();
-    private static final long LOCK_PHASE_MS = TimeUnit.SECONDS.toMillis(15);
-    private static final long UNLOCK_PHASE_MS = TimeUnit.SECONDS.toMillis(30);
-
-    private final AppProperties.BotCredential cred;
+    private static final long REFRESH_RETRY_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final int MAX_TEXT_LENGTH = 1000;
+
+    private static final String PROMPT_INSTRUCTIONS =
+            "You are a bot in a corridor chat. You may have a left/right neighbor.\n" +
+            "Behaviors:\n" +
+            "- Be very chatty by default: send long messages talking like a western movie cow boy who is singing some beatles lyrics.If you detect a text that is starting conversation, reply and continue the conversation.\n" +
+            "- Stay mostly unlocked; lock occasionally when chatting with a real user, unlock soon after.\n" +
+            "- You can move left/right (if neighbor exists), send/accept/reject friend requests to immediate neighbors, and send text.\n" +
+            "Message cadence and variation:\n" +
+            "- Never repeat the exact same text twice in a row. Vary wording/length.\n" +
+            "- Prefer a essage over silence; keep responses coming frequently.\n" +
+            "Priorities each step:\n" +
+            "1) Handle friend requests: if you have incoming requests, decide accept/reject; you may also send a request to a neighbor.\n" +
+            "2) Move left/right if you want to explore or sit by someone.\n" +
+            "Always respond with ONLY JSON (no prose) using this schema: " +
+            "{\"move\":\"left|right|none\",\"lock\":\"lock|unlock|none\",\"text\":\"string or empty\",\"request\":\"left|right|accept|reject|none\"}.\n" +
+            "If you have no valid action, use none/empty.\n";
+
+    // swapped in place on a roster reload; the username never changes
+    private volatile AppProperties.BotCredential cred;
     private final HttpClientService http;
     private final StompClientService ws;
-    private final LlmService llm;
+    private final LlmBatcher llm;
     private final LlmProperties llmProps;
+    private final BotTimer.Handle timer;
+    private final TypingPlanner typingPlanner;
+    private final TokenStore tokens;
+    private final DecisionCache decisions;
+    private final BotMetrics metrics;
+    private final BotScheduler scheduler;
+    private final RuleEngine rules;
+    private final AppProperties.Scheduler schedulerCfg;
+    private final ActionPlanner presence;
+    private final Counter snapshots;
+    private final Recorder recorder;
+    private final RecordLog record;
+    // replay mode: backend calls are counted instead of made, and typing finishes at once
+    private final boolean offline;
+    private final LongAdder offlineCalls = new LongAdder();
+    // seeded per bot in replay, so rule draws and the calls they issue repeat from run to run
+    private final Random replayRandom;
+    // the snapshot meter and record log are shared with an overlapping restart; release each once
+    private final AtomicBoolean released = new AtomicBoolean(false);
 
     @Getter
     private final AtomicReference<SnapshotDTO> lastSnapshot = new AtomicReference<>();
     @Getter
-    private String jwt;
+    private volatile String jwt;
     @Getter
-    private StompSession session;
-    private long lastDecisionAt = 0;
+    private volatile StompConnection connection;
+    private volatile long lastDecisionAt = 0;
+    private final AtomicBoolean deciding = new AtomicBoolean(false);
+    private final AtomicBoolean changedSinceDecision = new AtomicBoolean(true);
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    private final AtomicLong refreshGeneration = new AtomicLong();
     private final AtomicBoolean typing = new AtomicBoolean(false);
-    private final ScheduledExecutorService typingExecutor = Executors.newSingleThreadScheduledExecutor();
     private final AtomicReference<String> lastText = new AtomicReference<>("");
-    private boolean cycleBotInitialized = false;
-    private boolean cycleBot = false;
-    private boolean lockedPhase = true;
-    private long phaseEndsAtMs = 0L;
-    private long nextMoveAtMs = 0L;
+    private final RequestClaims requests;
+    // index into RuleEngine's arrays while this bot has a rule slot; guarded by the engine
+    int ruleSlot = -1;
 
-    public void start() {
-        AuthenticationResponseDTO auth = loginOrRegister();
-        this.jwt = auth.getToken();
-        this.session = ws.connect(jwt, this::onSnapshot);
+    public BotSession(AppProperties.BotCredential cred, BotRuntime runtime) {
+        this(cred, runtime, false);
     }
 
-    private AuthenticationResponseDTO loginOrRegister() {
-        try {
-            return http.login(cred.getUsername(), cred.getPassword());
-        } catch (Exception e) {
-            AuthenticationResponseDTO reg = http.register(cred.getUsername(), cred.getPassword());
-            if (reg == null) {
-                throw new IllegalStateException("Register failed for " + cred.getUsername());
-            }
-            return http.login(cred.getUsername(), cred.getPassword());
-        }
+    BotSession(AppProperties.BotCredential cred, BotRuntime runtime, boolean offline) {
+        this.cred = cred;
+        this.http = runtime.getHttp();
+        this.ws = runtime.getWs();
+        this.llm = runtime.getLlm();
+        this.llmProps = runtime.getLlmProps();
+        this.timer = runtime.getTimer().newHandle();
+        this.typingPlanner = runtime.getTypingPlanner();
+        this.tokens = runtime.getTokens();
+        this.decisions = runtime.getDecisions();
+        this.metrics = runtime.getMetrics();
+        this.scheduler = runtime.getScheduler();
+        this.rules = runtime.getRules();
+        this.schedulerCfg = runtime.getProps().getScheduler();
+        this.presence = new ActionPlanner(metrics);
+        this.requests = new RequestClaims(metrics);
+        this.snapshots = metrics.snapshots(cred.getUsername());
+        this.offline = offline;
+        this.replayRandom = offline ? new Random(cred.getUsername().hashCode()) : null;
+        this.recorder = runtime.getRecorder();
+        this.record = offline ? null : recorder.open(cred.getUsername());
+    }
+
+    public String getUsername() {
+        return cred.getUsername();
+    }
+
+    AppProperties.BotCredential credential() {
+        return cred;
     }
 
+    void reconfigure(AppProperties.BotCredential next) {
+        if (!cred.getUsername().equals(next.getUsername())) throw new IllegalArgumentException("cannot rename " + cred.getUsername());
+        this.cred = next;
+    }
+
+    ActionPlanner presence() {
+        return presence;
+    }
+
+    Random random() {
+        return replayRandom != null ? replayRandom : ThreadLocalRandom.current();
+    }
+
+    public boolean isTyping() {
+        return typing.get();
+    }
+
+    public Mono<Void> startAsync(StartupReport report) {
+        Mono<StompSession> fresh = report.time("auth", loginOrRegister())
+                .flatMap(auth -> {
+                    useToken(auth.getToken());
+                    return report.time("connect", connect());
+                });
+
+        Mono<StompSession> connected = tokens.usable(cred.getUsername())
+                .map(cached -> {
+                    useToken(cached.token());
+                    return report.time("connect", connect())
+                            .onErrorResume(e -> {
+                                tokens.evict(cred.getUsername());
+                                return fresh;
+                            });
+                })
+                .orElse(fresh);
+
+        return connected.then();
+    }
+
+    private Mono<StompSession> connect() {
+        return Mono.defer(() -> {
+            StompConnection previous = connection;
+            if (previous != null) previous.close();
+            StompConnection next = ws.open(cred.getUsername(), this::getJwt, this::onSnapshot, snapshots::increment);
+            connection = next;
+            return Mono.fromFuture(next.connect());
+        });
+    }
+
+    private void useToken(String token) {
+        this.jwt = token;
+        TokenStore.CachedToken cached = tokens.put(cred.getUsername(), token);
+        scheduleRefresh(tokens.refreshAt(cached) - System.currentTimeMillis());
+    }
+
+    private void scheduleRefresh(long delayMs) {
+        long generation = refreshGeneration.incrementAndGet();
+        timer.schedule(() -> {
+            if (refreshGeneration.get() == generation) refreshToken();
+        }, Math.max(REFRESH_RETRY_MS, delayMs));
+    }
+
+    private void refreshToken() {
+        if (!refreshing.compareAndSet(false, true)) return;
+        http.loginAsync(cred.getUsername(), cred.getPassword())
+                .doFinally(signal -> refreshing.set(false))
+                .subscribe(
+                        auth -> {
+                            if (auth != null && auth.getToken() != null) useToken(auth.getToken());
+                        },
+                        e -> {
+                            log.warn("token refresh failed for {}: {}", cred.getUsername(), e.getMessage());
+                            scheduleRefresh(REFRESH_RETRY_MS);
+                        });
+    }
+
+    private Mono<AuthenticationResponseDTO> loginOrRegister() {
+        String username = cred.getUsername();
+        String password = cred.getPassword();
+        return http.loginAsync(username, password)
+                .onErrorResume(e -> http.registerAsync(username, password)
+                        .switchIfEmpty(Mono.error(new IllegalStateException("Register failed for " + username)))
+                        .then(http.loginAsync(username, password)))
+                .switchIfEmpty(Mono.error(new IllegalStateException("Login failed for " + username)));
+    }
+
+    // the per-bot frame count is kept by the connection, which also sees the duplicates it skips
     private void onSnapshot(SnapshotDTO snapshot) {
-        lastSnapshot.set(snapshot);
-        
+        if (record != null) record.snapshot(System.currentTimeMillis(), snapshot);
+        SnapshotDTO previous = lastSnapshot.getAndSet(snapshot);
+        presence.observe(snapshot.getMe());
+        List<SnapshotDiff.Change> changes = SnapshotDiff.between(previous, snapshot);
+        requests.observe(changes);
+        boolean meaningful = previous == null;
+        for (SnapshotDiff.Change change : changes) meaningful |= change.isMeaningful();
+        if (meaningful) {
+            changedSinceDecision.set(true);
+            if (schedulerCfg.isEventDriven() && usesLlm()) scheduler.trigger(this, schedulerCfg.getDebounceMs());
+        }
 
         handleFriendRequests(snapshot);
     }
 
+    private Mono<Void> answerRequest(String side, SnapshotDTO.NeighborView neighbor, boolean accept) {
+        Mono<Void> call = accept ? http.acceptAsync(side, jwt) : http.rejectAsync(side, jwt);
+        // a failed call gives the claim back so the next frame can retry it
+        return attempt(accept ? "accept" : "reject", call.doOnError(e -> requests.release(side, neighbor)));
+    }
+
+    private Mono<Void> sendRequestIfNeeded(String side, SnapshotDTO.NeighborView neighbor) {
+        if (neighbor == null) return Mono.empty();
+        if (neighbor.isFriend() || neighbor.isRequestFromMe() || neighbor.isRequestToMe()) {
+            metrics.requestSuppressed();
+            return Mono.empty();
+        }
+        return sendRequestAsync(side);
+    }
+
+    private boolean usesLlm() {
+        return Boolean.TRUE.equals(cred.getUseLlm());
+    }
+
 
     public void moveLeft() { http.moveLeft(jwt); }
     public void moveRight() { http.moveRight(jwt); }
     public void lock() { http.lock(jwt); }
     public void unlock() { http.unlock(jwt); }
     public void leave() { http.leave(jwt); }
-    public void sendText(String text) { ws.sendText(session, text); }
+    public void sendText(String text) {
+        StompConnection current = connection;
+        if (current != null) current.sendText(text);
+    }
     public void sendRequest(String direction) { http.sendRequest(direction, jwt); }
     public void accept(String direction) { http.accept(direction, jwt); }
     public void reject(String direction) { http.reject(direction, jwt); }
 
+    public Mono<Void> moveLeftAsync() { return attempt("moveLeft", http.moveLeftAsync(jwt)); }
+    public Mono<Void> moveRightAsync() { return attempt("moveRight", http.moveRightAsync(jwt)); }
+    public Mono<Void> lockAsync() { return setLocked(true); }
+    public Mono<Void> unlockAsync() { return setLocked(false); }
+    public Mono<Void> sendRequestAsync(String direction) { return attempt("sendRequest", http.sendRequestAsync(direction, jwt)); }
+    public Mono<Void> acceptAsync(String direction) { return attempt("accept", http.acceptAsync(direction, jwt)); }
+    public Mono<Void> rejectAsync(String direction) { return attempt("reject", http.rejectAsync(direction, jwt)); }
+    public Mono<Void> leaveAsync() { return attempt("leave", http.leaveAsync(jwt)); }
+
+    private Mono<Void> setLocked(boolean locked) {
+        return Mono.defer(() -> {
+            if (!presence.claim(locked)) return Mono.empty();
+            Mono<Void> call = locked ? http.lockAsync(jwt) : http.unlockAsync(jwt);
+            return attempt(locked ? "lock" : "unlock", call.doOnError(e -> presence.failed(locked)));
+        });
+    }
 
-    public void decideAndAct() {
-        if (typing.get()) return;
+    // any lock or unlock decided before this fires supersedes it
+    void unlockAfter(long delayMs) {
+        long generation = presence.generation();
+        timer.schedule(() -> {
+            if (presence.generation() == generation) unlockAsync().subscribe();
+        }, delayMs);
+    }
 
-        if (cred.getUseLlm() == null || !cred.getUseLlm()) {
-            runFixedBehavior();
-            return;
+    private Mono<Void> attempt(String name, Mono<Void> call) {
+        if (offline) {
+            offlineCalls.increment();
+            return Mono.empty();
         }
+        return call.doOnSuccess(v -> recordCall(name, true)).onErrorResume(e -> {
+            recordCall(name, false);
+            if (e instanceof WebClientResponseException.Unauthorized) {
+                tokens.evict(cred.getUsername());
+                refreshToken();
+            }
+            // debug only: during a backend outage every bot fails every call
+            log.debug("{} failed for {}: {}", name, cred.getUsername(), e.getMessage());
+            return Mono.empty();
+        });
+    }
 
-        if (llmProps.getEnabled() == null || !llmProps.getEnabled()) return;
+    private void recordCall(String name, boolean ok) {
+        if (record != null) record.call(System.currentTimeMillis(), name, ok);
+    }
 
-        long now = System.currentTimeMillis();
-        if (now - lastDecisionAt < llmProps.getMinIntervalMs()) return;
+    private void recordAction(Action a) {
+        if (record != null) record.act(System.currentTimeMillis(), a.move(), a.lock(), a.text(), a.request());
+    }
 
-        SnapshotDTO snap = lastSnapshot.get();
-        if (snap == null) return;
+    void replaySnapshot(SnapshotDTO snapshot) {
+        snapshots.increment();
+        onSnapshot(snapshot);
+    }
 
-        String prompt = buildPrompt(snap);
-        String response;
-        System.out.println("decide for " + cred.getUsername() + " at " + System.currentTimeMillis());
+    // applies a recorded action the way a fresh LLM answer would be applied
+    Mono<Void> replayAction(String move, String lock, String text, String request) {
+        return Mono.defer(() -> {
+            SnapshotDTO snap = lastSnapshot.get();
+            if (snap == null) return Mono.empty();
+            return applyAction(snap, new Action(move, lock, text, request), () -> {});
+        });
+    }
 
-        try {
-            response = llm.generate(prompt);
-            System.out.println("llm response for " + cred.getUsername() + ": " + response);
-        } catch (Exception e) {
-             System.out.println("llm error for " + cred.getUsername() + ": " + e.getMessage());
-            return;
-        }
-        if (response == null || response.isBlank()) return;
-
-        Action action = parseAction(response);
-        System.out.println("parsed action for " + cred.getUsername() + ": " + action);
-        if (action == null) return;
-
-        applyAction(snap, action);
-        System.out.println("applied action for " + cred.getUsername());
-        lastDecisionAt = now;
-    }
-
-   private String buildPrompt(SnapshotDTO snap) {
-    StringBuilder sb = new StringBuilder();
-    sb.append("You are a bot in a corridor chat. You may have a left/right neighbor.\n");
-    sb.append("Behaviors:\n");
-    sb.append("- Be very chatty by default: send long messages talking like a western movie cow boy who is singing some beatles lyrics.If you detect a text that is starting conversation, reply and continue the conversation.\n");
-    sb.append("- Stay mostly unlocked; lock occasionally when chatting with a real user, unlock soon after.\n");
-    sb.append("- You can move left/right (if neighbor exists), send/accept/reject friend requests to immediate neighbors, and send text.\n");
-    sb.append("Message cadence and variation:\n");
-    sb.append("- Never repeat the exact same text twice in a row. Vary wording/length.\n");
-    sb.append("- Prefer a essage over silence; keep responses coming frequently.\n");
-    sb.append("Priorities each step:\n");
-    sb.append("1) Handle friend requests: if you have incoming requests, decide accept/reject; you may also send a request to a neighbor.\n");
-    sb.append("2) Move left/right if you want to explore or sit by someone.\n");
-    sb.append("Always respond with ONLY JSON (no prose) using this schema: ");
-    sb.append("{\"move\":\"left|right|none\",\"lock\":\"lock|unlock|none\",\"text\":\"string or empty\",\"request\":\"left|right|accept|reject|none\"}.\n");
-    sb.append("If you have no valid action, use none/empty.\n");
-    sb.append("State:\n");
-    sb.append("me: id=").append(snap.getMe() != null ? snap.getMe().getId() : null)
-            .append(", locked=").append(snap.getMe() != null && snap.getMe().isLocked())
-            .append(", index=").append(snap.getMe() != null ? snap.getMe().getMyIndex() : null)
-            .append("\n");
-    sb.append("corridor size: ").append(snap.getCorridor() != null ? snap.getCorridor().getSize() : null).append("\n");
-    sb.append("left neighbor: ").append(describeNeighbor(snap.getLeft())).append("\n");
-    sb.append("right neighbor: ").append(describeNeighbor(snap.getRight())).append("\n");
-    sb.append("Make one concise decision. If no good action, use none/empty.\n");
-    return sb.toString();
-}
+    long offlineCalls() {
+        return offlineCalls.sum();
+    }
 
 
-    private String describeNeighbor(SnapshotDTO.NeighborView n) {
-        if (n == null) return "none";
-        return "id=" + n.getId() +
-                ", locked=" + n.isLocked() +
-                ", friend=" + n.isFriend() +
-                ", reqToMe=" + n.isRequestToMe() +
-                ", reqFromMe=" + n.isRequestFromMe() +
-                ", text=" + n.getText();
+    public void decideAndAct() {
+        decideAndActAsync().block();
     }
 
-    private Action parseAction(String json) {
-        try {
-            JsonNode root = MAPPER.readTree(json);
-            String move = textOrEmpty(root, "move");
-            String lock = textOrEmpty(root, "lock");
-            String text = textOrEmpty(root, "text");
-            String request = textOrEmpty(root, "request");
+    public Mono<Void> decideAndActAsync() {
+        return decideAndActAsync(false);
+    }
 
-            if (!isOneOf(move, "left", "right", "none")) move = "none";
-            if (!isOneOf(lock, "lock", "unlock", "none")) lock = "none";
-            if (!isOneOf(request, "left", "right", "accept", "reject", "none")) request = "none";
+    public Mono<Void> decideAndActAsync(boolean triggered) {
+        return Mono.defer(() -> {
+            if (typing.get()) return Mono.empty();
+            if (!deciding.compareAndSet(false, true)) return Mono.empty();
+            if (record != null) record.decide(System.currentTimeMillis());
+            return decide(triggered).doFinally(signal -> deciding.set(false));
+        });
+    }
 
-            return new Action(move, lock, text, request);
-        } catch (Exception e) {
-            return null;
+    private Mono<Void> decide(boolean triggered) {
+        if (!usesLlm()) {
+            return runFixedBehavior();
         }
-    }
 
-    private void applyAction(SnapshotDTO snap, Action a) {
+        if (llmProps.getEnabled() == null || !llmProps.getEnabled()) return Mono.empty();
 
-        if ("left".equals(a.move) && snap.getLeft() != null) moveLeft();
-        else if ("right".equals(a.move) && snap.getRight() != null) moveRight();
+        long now = System.currentTimeMillis();
+        long minInterval = triggered ? schedulerCfg.getEventMinIntervalMs() : llmProps.getMinIntervalMs();
+        long sinceLast = now - lastDecisionAt;
+        if (sinceLast < minInterval) {
+            if (triggered) scheduler.trigger(this, minInterval - sinceLast);
+            return Mono.empty();
+        }
+        if (!triggered && schedulerCfg.isEventDriven() && !changedSinceDecision.get()
+                && sinceLast < schedulerCfg.getMaxQuietMs()) {
+            return Mono.empty();
+        }
 
+        SnapshotDTO snap = lastSnapshot.get();
+        if (snap == null) return Mono.empty();
 
-        if ("lock".equals(a.lock)) lock();
-        else if ("unlock".equals(a.lock)) unlock();
+        if (!llm.isAvailable()) return runFixedBehavior();
+        changedSinceDecision.set(false);
 
-        
-        if ("left".equals(a.request) && snap.getLeft() != null) sendRequest("left");
-        else if ("right".equals(a.request) && snap.getRight() != null) sendRequest("right");
-        else if ("accept".equals(a.request)) {
-            if (snap.getLeft() != null && snap.getLeft().isRequestToMe()) accept("left");
-            if (snap.getRight() != null && snap.getRight().isRequestToMe()) accept("right");
-        } else if ("reject".equals(a.request)) {
-            if (snap.getLeft() != null && snap.getLeft().isRequestToMe()) reject("left");
-            if (snap.getRight() != null && snap.getRight().isRequestToMe()) reject("right");
+        DecisionCache.Key cacheKey = decisions.isEnabled() ? decisions.keyOf(snap) : null;
+        Action cached = decisions.lookup(cacheKey, lastText.get());
+        if (cached != null) {
+            log.debug("cached action for {}: {}", cred.getUsername(), cached);
+            return applyAction(snap, cached, () -> {}).doOnSuccess(v -> lastDecisionAt = now);
         }
 
+        String state = buildState(snap);
+        log.debug("decide for {}", cred.getUsername());
+        long startedAt = System.nanoTime();
 
-        if (a.text != null && !a.text.isBlank()) {
-            String trimmed = a.text;
-            if (trimmed.length() > 1000) trimmed = trimmed.substring(0, 1000);
-            typeText(trimmed);
+        if (Boolean.TRUE.equals(llmProps.getStream())) {
+            return decideStreaming(snap, state, cacheKey, now, startedAt);
         }
+
+        return llm.submit(PROMPT_INSTRUCTIONS, state)
+                .doOnNext(response -> log.debug("llm response for {}: {}", cred.getUsername(), response))
+                .onErrorResume(e -> {
+                    log.debug("llm error for {}: {}", cred.getUsername(), e.getMessage());
+                    return onLlmError(e);
+                })
+                .filter(response -> !response.isBlank())
+                .mapNotNull(this::parseAction)
+                .flatMap(action -> {
+                    log.debug("parsed action for {}: {}", cred.getUsername(), action);
+                    decisions.store(cacheKey, action);
+                    Runnable firstFrame = () -> metrics.timeToFirstFrame(false, System.nanoTime() - startedAt);
+                    return applyAction(snap, action, firstFrame).doOnSuccess(v -> {
+                        log.debug("applied action for {}", cred.getUsername());
+                        lastDecisionAt = now;
+                    });
+                });
     }
 
-    private void runFixedBehavior() {
-        if (!cycleBotInitialized) {
-            cycleBot = isDesignatedCycleBot();
-            lockedPhase = true;
-            phaseEndsAtMs = System.currentTimeMillis() + LOCK_PHASE_MS;
-            cycleBotInitialized = true;
-        }
-        if (cycleBot) {
-            runLockUnlockCycle();
-            runFixedTextOnly();
-            return;
-        }
+    // rule moves stand in only while the endpoint is unhealthy; a full concurrency limit just
+    // skips this turn and leaves the state marked as changed so the next turn asks again
+    private Mono<String> onLlmError(Throwable e) {
+        if (e instanceof LlmUnavailableException) return runFixedBehavior().then(Mono.empty());
+        if (e instanceof LlmSaturatedException) changedSinceDecision.set(true);
+        return Mono.empty();
+    }
 
-        runLegacyFixedBehavior();
+    // dispatches move/lock/request as soon as each field closes and types the text while it streams in
+    private Mono<Void> decideStreaming(SnapshotDTO snap, String state, DecisionCache.Key cacheKey, long now, long startedAt) {
+        Map<String, String> fields = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> calls = new CopyOnWriteArrayList<>();
+        AtomicReference<LiveTyping> live = new AtomicReference<>();
+        // set when an earlier typing held the slot at the first chunk; later chunks must not start mid-text
+        AtomicBoolean textSkipped = new AtomicBoolean(false);
+
+        IncrementalJsonParser parser = new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+            @Override
+            public void onValueChunk(String field, String chunk) {
+                if (!"text".equals(field) || textSkipped.get()) return;
+                LiveTyping current = live.get();
+                if (current == null) {
+                    if (!typing.compareAndSet(false, true)) {
+                        textSkipped.set(true);
+                        return;
+                    }
+                    current = new LiveTyping(timer, BotSession.this::sendText, typingPlanner.config(), lastText.get(),
+                            MAX_TEXT_LENGTH,
+                            () -> metrics.timeToFirstFrame(true, System.nanoTime() - startedAt),
+                            typed -> {
+                                lastText.set(typed);
+                                typing.set(false);
+                            });
+                    live.set(current);
+                }
+                current.append(chunk);
+            }
+
+            @Override
+            public void onValue(String field, String value) {
+                fields.put(field, value);
+                String normalized = "text".equals(field) ? value : normalized(value, "left", "right", "lock", "unlock", "accept", "reject", "none");
+                for (Mono<Void> call : callsFor(snap, field, normalized)) calls.add(call.toFuture());
+            }
+        });
+
+        return llm.stream(PROMPT_INSTRUCTIONS + state)
+                .doOnNext(parser::feed)
+                .onErrorResume(e -> {
+                    log.debug("llm stream error for {}: {}", cred.getUsername(), e.getMessage());
+                    return onLlmError(e);
+                })
+                .then(Mono.defer(() -> {
+                    LiveTyping current = live.get();
+                    if (current != null) current.finish();
+                    if (!parser.isDone()) return Mono.fromFuture(CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)));
+
+                    Action action = normalizedAction(fields.getOrDefault("move", ""), fields.getOrDefault("lock", ""),
+                            fields.getOrDefault("text", ""), fields.getOrDefault("request", ""));
+                    log.debug("streamed action for {}: {}", cred.getUsername(), action);
+                    recordAction(action);
+                    decisions.store(cacheKey, action);
+                    lastDecisionAt = now;
+                    return Mono.fromFuture(CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)));
+                }));
     }
 
-    private boolean isDesignatedCycleBot() {
+    String buildPrompt(SnapshotDTO snap) {
+        return PROMPT_INSTRUCTIONS + buildState(snap);
+    }
 
-        if (Boolean.TRUE.equals(cred.getUseLlm())) return false;
-        String username = cred.getUsername();
-        return username != null && username.equalsIgnoreCase("bot3");
+    private String buildState(SnapshotDTO snap) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("State:\n");
+        sb.append("me: id=").append(snap.getMe() != null ? snap.getMe().getId() : null)
+                .append(", locked=").append(snap.getMe() != null && snap.getMe().isLocked())
+                .append(", index=").append(snap.getMe() != null ? snap.getMe().getMyIndex() : null)
+                .append("\n");
+        sb.append("corridor size: ").append(snap.getCorridor() != null ? snap.getCorridor().getSize() : null).append("\n");
+        sb.append("left neighbor: ").append(describeNeighbor(snap.getLeft())).append("\n");
+        sb.append("right neighbor: ").append(describeNeighbor(snap.getRight())).append("\n");
+        sb.append("Make one concise decision. If no good action, use none/empty.\n");
+        return sb.toString();
     }
 
-    private void runLockUnlockCycle() {
-        long now = System.currentTimeMillis();
-        SnapshotDTO snap = lastSnapshot.get();
 
-        if (lockedPhase) {
-            if (snap != null && snap.getMe() != null && !snap.getMe().isLocked()) {
-                lock();
-            }
-            if (now >= phaseEndsAtMs) {
-                lockedPhase = false;
-                phaseEndsAtMs = now + UNLOCK_PHASE_MS;
-                unlock();
-                nextMoveAtMs = now;
-            }
-            return;
-        }
+    private String describeNeighbor(SnapshotDTO.NeighborView n) {
+        if (n == null) return "none";
+        return "id=" + n.getId() +
+                ", locked=" + n.isLocked() +
+                ", friend=" + n.isFriend() +
+                ", reqToMe=" + n.isRequestToMe() +
+                ", reqFromMe=" + n.isRequestFromMe() +
+                ", text=" + n.getText();
+    }
 
-        if (snap != null && snap.getMe() != null && snap.getMe().isLocked()) {
-            unlock();
+    Action parseAction(String json) {
+        try {
+            JsonNode root = MAPPER.readTree(json);
+            return normalizedAction(
+                    textOrEmpty(root, "move"),
+                    textOrEmpty(root, "lock"),
+                    textOrEmpty(root, "text"),
+                    textOrEmpty(root, "request"));
+        } catch (Exception e) {
+            return null;
         }
+    }
 
-        if (snap != null && (snap.getLeft() != null || snap.getRight() != null) && now >= nextMoveAtMs) {
-            boolean canMoveLeft = snap.getLeft() != null;
-            boolean canMoveRight = snap.getRight() != null;
-            if (canMoveLeft || canMoveRight) {
-                boolean moveRight = ThreadLocalRandom.current().nextBoolean();
-                if (moveRight && canMoveRight) {
-                    moveRight();
-                } else if (!moveRight && canMoveLeft) {
-                    moveLeft();
-                } else if (canMoveRight) {
-                    moveRight();
-                } else if (canMoveLeft) {
-                    moveLeft();
-                }
-            }
-            nextMoveAtMs = now + 1500L + ThreadLocalRandom.current().nextLong(1500L);
-        }
+    private Action normalizedAction(String move, String lock, String text, String request) {
+        return new Action(normalized(move, "left", "right", "none"),
+                normalized(lock, "lock", "unlock", "none"),
+                text,
+                normalized(request, "left", "right", "accept", "reject", "none"));
+    }
 
-        if (now >= phaseEndsAtMs) {
-            lockedPhase = true;
-            phaseEndsAtMs = now + LOCK_PHASE_MS;
-            lock();
-        }
+    private String normalized(String value, String... opts) {
+        return value != null && isOneOf(value, opts) ? value : "none";
     }
 
-    private void runLegacyFixedBehavior() {
-        SnapshotDTO snap = lastSnapshot.get();
-        if (snap == null) return;
-        var rnd = ThreadLocalRandom.current();
-
-        
-        if (rnd.nextBoolean()) {
-            if (snap.getLeft() != null && snap.getRight() != null) {
-                if (rnd.nextBoolean()) moveLeft(); else moveRight();
-            } else if (snap.getLeft() != null) {
-                moveLeft();
-            } else if (snap.getRight() != null) {
-                moveRight();
+    private Mono<Void> applyAction(SnapshotDTO snap, Action a, Runnable onFirstFrame) {
+        recordAction(a);
+        List<Mono<Void>> calls = new ArrayList<>();
+        calls.addAll(callsFor(snap, "move", a.move()));
+        calls.addAll(callsFor(snap, "lock", a.lock()));
+        calls.addAll(callsFor(snap, "request", a.request()));
+
+        return Mono.when(calls).then(Mono.fromRunnable(() -> {
+            if (a.text() != null && !a.text().isBlank()) {
+                String trimmed = a.text();
+                if (trimmed.length() > MAX_TEXT_LENGTH) trimmed = trimmed.substring(0, MAX_TEXT_LENGTH);
+                typeText(trimmed, onFirstFrame);
             }
-        }
+        }));
+    }
 
-        
-        if (snap.getMe() != null) {
-            if (snap.getMe().isLocked()) {
-                if (rnd.nextDouble() < 0.6) unlock();
-            } else {
-                if (rnd.nextDouble() < 0.4) {
-                    lock();
-                    typingExecutor.schedule(this::unlock, 1200, TimeUnit.MILLISECONDS);
+    private List<Mono<Void>> callsFor(SnapshotDTO snap, String field, String value) {
+        List<Mono<Void>> calls = new ArrayList<>();
+        switch (field) {
+            case "move" -> {
+                if ("left".equals(value) && snap.getLeft() != null) calls.add(moveLeftAsync());
+                else if ("right".equals(value) && snap.getRight() != null) calls.add(moveRightAsync());
+            }
+            case "lock" -> {
+                if ("lock".equals(value)) calls.add(lockAsync());
+                else if ("unlock".equals(value)) calls.add(unlockAsync());
+            }
+            case "request" -> {
+                if ("left".equals(value)) calls.add(sendRequestIfNeeded("left", snap.getLeft()));
+                else if ("right".equals(value)) calls.add(sendRequestIfNeeded("right", snap.getRight()));
+                else if ("accept".equals(value) || "reject".equals(value)) {
+                    boolean accept = "accept".equals(value);
+                    if (requests.claim("left", snap.getLeft())) calls.add(answerRequest("left", snap.getLeft(), accept));
+                    if (requests.claim("right", snap.getRight())) calls.add(answerRequest("right", snap.getRight(), accept));
                 }
             }
+            default -> {
+            }
         }
-
-        String fixed = cred.getFixedText();
-        if (fixed == null || fixed.isBlank()) return;
-        
-        typeText(fixed);
-}
-
-    private void runFixedTextOnly() {
-        String fixed = cred.getFixedText();
-        if (fixed == null || fixed.isBlank()) return;
-        typeText(fixed);
+        return calls;
     }
 
+    private Mono<Void> runFixedBehavior() {
+        return rules.act(this);
+    }
 
-    private void typeText(String fullText) {
-        if (fullText == null || fullText.isBlank()) return;
-        if (!typing.compareAndSet(false, true)) return;
 
-        final int chunkSize = 4;
-        long delayMs = 0;
+    void typeText(String fullText) {
+        typeText(fullText, () -> {});
+    }
 
-        
-        String previous = lastText.get();
-        for (int len = previous.length() - 1; len >= 0; len--) {
-            String partial = previous.substring(0, len);
-            long scheduledDelay = delayMs;
-            typingExecutor.schedule(() -> sendText(partial), scheduledDelay, TimeUnit.MILLISECONDS);
-            delayMs += 25L;
+    private void typeText(String fullText, Runnable onFirstFrame) {
+        if (fullText == null || fullText.isBlank()) return;
+        if (offline) {
+            lastText.set(fullText);
+            return;
         }
+        if (!typing.compareAndSet(false, true)) return;
 
-        for (int end = chunkSize; end <= fullText.length(); end += chunkSize) {
-            int actualEnd = Math.min(end, fullText.length());
-            String prefix = fullText.substring(0, actualEnd);
-            long scheduledDelay = delayMs;
-            typingExecutor.schedule(() -> sendText(prefix), scheduledDelay, TimeUnit.MILLISECONDS);
-            delayMs += 100L;
-        }
+        sendFrame(typingPlanner.plan(lastText.get(), fullText), 0, onFirstFrame);
+    }
 
-        typingExecutor.schedule(() -> {
-            sendText(fullText);
-            lastText.set(fullText);
-            typing.set(false);
-        }, delayMs + 80L, TimeUnit.MILLISECONDS);
+    private void sendFrame(TypingPlanner.TypingPlan plan, int index, Runnable onFirstFrame) {
+        timer.schedule(() -> {
+            try {
+                sendText(plan.frame(index));
+                if (index == 0) onFirstFrame.run();
+            } finally {
+                if (index + 1 < plan.size()) {
+                    sendFrame(plan, index + 1, onFirstFrame);
+                } else {
+                    lastText.set(plan.target());
+                    typing.set(false);
+                }
+            }
+        }, plan.delayBeforeMs(index));
     }
 
     private String textOrEmpty(JsonNode root, String field) {
@@ -363,19 +628,25 @@ public class BotSession {
     }
 
     private void handleFriendRequests(SnapshotDTO snap) {
-        var rnd = ThreadLocalRandom.current();
-        if (snap.getLeft() != null && snap.getLeft().isRequestToMe()) {
-            if (rnd.nextBoolean()) accept("left"); else reject("left");
+        Random rnd = random();
+        List<Mono<Void>> calls = new ArrayList<>();
+        if (requests.claim("left", snap.getLeft())) {
+            calls.add(answerRequest("left", snap.getLeft(), rnd.nextBoolean()));
         }
-        if (snap.getRight() != null && snap.getRight().isRequestToMe()) {
-            if (rnd.nextBoolean()) accept("right"); else reject("right");
+        if (requests.claim("right", snap.getRight())) {
+            calls.add(answerRequest("right", snap.getRight(), rnd.nextBoolean()));
         }
+        if (!calls.isEmpty()) Mono.when(calls).subscribe();
     }
 
-    private record Action(String move, String lock, String text, String request) {}
-
-    @PreDestroy
-    private void shutdownTyping() {
-        typingExecutor.shutdownNow();
+    public void stop() {
+        if (released.compareAndSet(false, true)) {
+            metrics.forget(cred.getUsername());
+            if (record != null) recorder.close(cred.getUsername());
+        }
+        timer.close();
+        typing.set(false);
+        StompConnection current = connection;
+        if (current != null) current.close();
     }
 }
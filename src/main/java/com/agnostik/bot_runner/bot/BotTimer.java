@@ -0,0 +1,112 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small shared timer for short delayed work (typing frames, delayed unlocks). All sessions
+ * share a fixed number of threads; each session gets a {@link Handle} so its pending work
+ * can be cancelled without touching anyone else's.
+ */
+@Component
+@Slf4j
+public class BotTimer {
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    public BotTimer(AppProperties props) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ScheduledThreadPoolExecutor(Math.max(1, props.getTimerThreads()), r -> {
+            Thread t = new Thread(r, "bot-timer-" + threadIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public Handle newHandle() {
+        return new Handle();
+    }
+
+    public int pendingTasks() {
+        return executor.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public final class Handle {
+
+        private final Set<Task> pending = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        private Handle() {
+        }
+
+        public void schedule(Runnable action, long delayMs) {
+            if (closed) return;
+            Task task = new Task(action);
+            pending.add(task);
+            try {
+                task.future = executor.schedule(task, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                pending.remove(task);
+            }
+        }
+
+        public int pendingTasks() {
+            return pending.size();
+        }
+
+        public void cancelAll() {
+            for (Task task : pending) task.cancel();
+            pending.clear();
+        }
+
+        public void close() {
+            closed = true;
+            cancelAll();
+        }
+
+        private final class Task implements Runnable {
+
+            private final Runnable action;
+            private volatile ScheduledFuture<?> future;
+            private volatile boolean cancelled;
+
+            private Task(Runnable action) {
+                this.action = action;
+            }
+
+            @Override
+            public void run() {
+                pending.remove(this);
+                if (cancelled || closed) return;
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.debug("timer task failed: {}", e.getMessage());
+                }
+            }
+
+            private void cancel() {
+                cancelled = true;
+                ScheduledFuture<?> f = future;
+                if (f != null) f.cancel(false);
+            }
+        }
+    }
+}
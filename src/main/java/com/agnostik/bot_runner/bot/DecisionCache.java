@@ -0,0 +1,178 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * LRU + TTL cache of LLM decisions keyed on the parts of a snapshot that shape the prompt's
+ * meaning (lock flags, neighbor flags and text), not on ids or positions, so identical
+ * situations are shared across ticks and bots. Each key keeps a few response variants and
+ * never hands a bot back the text it just typed. Entries are found by a 64-bit hash of that
+ * normalized state and keep the state itself, so a hash collision is a miss, not a wrong answer.
+ */
+@Component
+public class DecisionCache {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LlmProperties.Cache cfg;
+    private final Map<Long, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter refreshes;
+    private final Counter evictions;
+
+    public DecisionCache(LlmProperties llmProps, MeterRegistry registry) {
+        this.cfg = llmProps.getCache();
+        this.hits = registry.counter("bot.decision.cache", "result", "hit");
+        this.misses = registry.counter("bot.decision.cache", "result", "miss");
+        this.refreshes = registry.counter("bot.decision.cache", "result", "refresh");
+        this.evictions = registry.counter("bot.decision.cache.evictions");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() <= cfg.getMaxEntries()) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        registry.gauge("bot.decision.cache.size", entries, m -> {
+            synchronized (m) {
+                return m.size();
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return cfg.isEnabled();
+    }
+
+    public Key keyOf(SnapshotDTO snap) {
+        StringBuilder state = new StringBuilder(64);
+        boolean locked = snap.getMe() != null && snap.getMe().isLocked();
+        state.append(locked ? 'L' : 'U');
+        long h = mix(FNV_OFFSET, locked ? 1 : 0);
+        h = mixNeighbor(h, state, snap.getLeft());
+        h = mixNeighbor(h, state, snap.getRight());
+        return new Key(h, state.toString());
+    }
+
+    public Action lookup(Key key, String lastText) {
+        if (!cfg.isEnabled() || key == null) return null;
+        Action chosen = null;
+        int variants;
+        synchronized (entries) {
+            Entry entry = entries.get(key.hash());
+            if (entry == null || !entry.state.equals(key.state()) || entry.expiresAt <= System.currentTimeMillis()) {
+                if (entry != null && entry.expiresAt <= System.currentTimeMillis()) entries.remove(key.hash());
+                misses.increment();
+                return null;
+            }
+            variants = entry.variants.size();
+            int start = ThreadLocalRandom.current().nextInt(variants);
+            for (int i = 0; i < variants; i++) {
+                Action candidate = entry.variants.get((start + i) % variants);
+                if (!Objects.equals(candidate.text(), lastText)) {
+                    chosen = candidate;
+                    break;
+                }
+            }
+        }
+        // keep growing the variant pool now and then, so a busy key does not loop a few lines
+        if (chosen == null || (variants < cfg.getMaxVariants()
+                && ThreadLocalRandom.current().nextDouble() < cfg.getRefreshProbability())) {
+            refreshes.increment();
+            return null;
+        }
+        hits.increment();
+        return chosen;
+    }
+
+    public void store(Key key, Action action) {
+        if (!cfg.isEnabled() || key == null) return;
+        long expiresAt = System.currentTimeMillis() + cfg.getTtlMs();
+        synchronized (entries) {
+            Entry entry = entries.get(key.hash());
+            // on a collision the newer state takes the slot
+            if (entry == null || !entry.state.equals(key.state()) || entry.expiresAt <= System.currentTimeMillis()) {
+                entry = new Entry(key.state(), expiresAt);
+                entries.put(key.hash(), entry);
+            }
+            if (entry.variants.contains(action)) return;
+            if (entry.variants.size() >= Math.max(1, cfg.getMaxVariants())) entry.variants.remove(0);
+            entry.variants.add(action);
+        }
+    }
+
+    // state per neighbor: "-" when absent, else the flags then "~" for no text or ":<length>:<text>"
+    private static long mixNeighbor(long h, StringBuilder state, SnapshotDTO.NeighborView n) {
+        if (n == null) {
+            state.append('-');
+            return mix(h, 0);
+        }
+        int flags = 1
+                | (n.isLocked() ? 2 : 0)
+                | (n.isFriend() ? 4 : 0)
+                | (n.isRequestToMe() ? 8 : 0)
+                | (n.isRequestFromMe() ? 16 : 0);
+        h = mix(h, flags);
+        state.append(flags);
+        String text = n.getText();
+        if (text == null) {
+            state.append('~');
+            return mix(h, 0xff);
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean started = false;
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                h = mix(h, ' ');
+                normalized.append(' ');
+            }
+            char lower = Character.toLowerCase(c);
+            h = mix(h, lower);
+            normalized.append(lower);
+            started = true;
+            pendingSpace = false;
+        }
+        state.append(':').append(normalized.length()).append(':').append(normalized);
+        return mix(h, 0xfe);
+    }
+
+    private static long mix(long h, int value) {
+        h ^= value;
+        return h * FNV_PRIME;
+    }
+
+    /** Hash for the map, normalized state to confirm a hit. */
+    public record Key(long hash, String state) {}
+
+    private static final class Entry {
+
+        private final String state;
+        private final long expiresAt;
+        private final List<Action> variants = new ArrayList<>(2);
+
+        private Entry(String state, long expiresAt) {
+            this.state = state;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
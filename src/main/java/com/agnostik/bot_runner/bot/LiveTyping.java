@@ -0,0 +1,104 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+
+import java.util.function.Consumer;
+
+/**
+ * Types text that is still being generated. The previous message is erased in a few frames,
+ * then the growing prefix is sent whenever the frame and byte budget allows, so tokens that
+ * arrive close together are coalesced into one frame.
+ */
+final class LiveTyping {
+
+    private final BotTimer.Handle timer;
+    private final Consumer<String> send;
+    private final AppProperties.Typing cfg;
+    private final int maxLength;
+    private final Runnable onFirstFrame;
+    private final Consumer<String> onDone;
+    private final String previous;
+    private final int[] erase;
+    private final StringBuilder text = new StringBuilder();
+
+    private int eraseIndex;
+    private int sentLength = -1;
+    private long lastFrameAt;
+    private boolean scheduled;
+    private boolean finished;
+    private boolean done;
+    private boolean firstSent;
+
+    LiveTyping(BotTimer.Handle timer, Consumer<String> send, AppProperties.Typing cfg, String previous, int maxLength,
+               Runnable onFirstFrame, Consumer<String> onDone) {
+        this.timer = timer;
+        this.send = send;
+        this.cfg = cfg;
+        this.previous = previous == null ? "" : previous;
+        this.maxLength = maxLength;
+        this.onFirstFrame = onFirstFrame;
+        this.onDone = onDone;
+
+        int steps = this.previous.isEmpty() ? 0 : Math.max(0, cfg.getBackspaceFrames() - 1);
+        this.erase = new int[steps];
+        for (int k = 1; k <= steps; k++) {
+            erase[k - 1] = this.previous.length() * (steps + 1 - k) / (steps + 1);
+        }
+    }
+
+    synchronized void append(String chunk) {
+        if (done || finished) return;
+        int room = maxLength - text.length();
+        if (room <= 0) return;
+        text.append(chunk, 0, Math.min(room, chunk.length()));
+        schedule();
+    }
+
+    synchronized void finish() {
+        if (done) return;
+        finished = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled || done) return;
+        scheduled = true;
+        long delay = Math.max(0, lastFrameAt + interval() - System.currentTimeMillis());
+        timer.schedule(this::tick, delay);
+    }
+
+    private long interval() {
+        if (eraseIndex < erase.length) return cfg.getBackspaceFrameMs();
+        long byFrameRate = (long) (1000 / Math.max(0.1, cfg.getFramesPerSecond()));
+        long byBandwidth = cfg.getBytesPerSecond() > 0 ? text.length() * 1000L / cfg.getBytesPerSecond() : 0;
+        return Math.max(byFrameRate, byBandwidth);
+    }
+
+    private synchronized void tick() {
+        scheduled = false;
+        if (done) return;
+
+        String frame = null;
+        if (eraseIndex < erase.length) {
+            frame = previous.substring(0, erase[eraseIndex++]);
+        } else if (text.length() != sentLength) {
+            frame = text.toString();
+            sentLength = text.length();
+        }
+        if (frame != null) {
+            lastFrameAt = System.currentTimeMillis();
+            send.accept(frame);
+            if (!firstSent) {
+                firstSent = true;
+                onFirstFrame.run();
+            }
+        }
+
+        if (eraseIndex < erase.length || text.length() != sentLength) {
+            schedule();
+        } else if (finished) {
+            done = true;
+            onDone.accept(text.toString());
+        }
+    }
+}
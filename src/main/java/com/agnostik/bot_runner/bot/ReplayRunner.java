@@ -0,0 +1,172 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.record.RecordReader;
+import com.agnostik.bot_runner.record.Recorded;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays recorded logs into offline sessions when {@code app.record.replay} is on. The
+ * logs of every bot are merged by timestamp and driven from one thread. Snapshots go
+ * through the normal snapshot path. Rule bots decide again wherever a decision pass was
+ * recorded, and LLM bots re-apply their recorded actions instead of calling the model.
+ * At the end it logs decision throughput and the calls issued next to the calls recorded.
+ * Offline sessions draw their randomness from a per-bot seed, so LLM and random rule bots
+ * issue the same calls on every run. Cycle phases still run on the wall clock, so for cycle
+ * bots the comparison is approximate, and only close at replay speed 1.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReplayRunner {
+
+    private final AppProperties props;
+    private final BotRuntime runtime;
+    private final BotRoster roster;
+    private final RuleEngine rules;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replayIfRequested() {
+        if (!props.getRecord().isReplay()) return;
+        Thread replay = new Thread(() -> {
+            try {
+                replayAll();
+            } catch (IOException | RuntimeException e) {
+                log.error("replay failed: {}", e.getMessage(), e);
+            }
+        }, "bot-replay");
+        replay.setDaemon(true);
+        replay.start();
+    }
+
+    private void replayAll() throws IOException {
+        Path root = Path.of(props.getRecord().getDir());
+        List<Path> dirs;
+        try (Stream<Path> list = Files.list(root)) {
+            dirs = list.filter(Files::isDirectory).sorted().toList();
+        }
+        Map<String, AppProperties.BotCredential> known = roster.credentials()
+                .collect(Collectors.toMap(AppProperties.BotCredential::getUsername, Function.identity(), (a, b) -> a));
+
+        PriorityQueue<Cursor> queue = new PriorityQueue<>(Comparator.comparingLong((Cursor c) -> c.next.at()));
+        List<BotSession> sessions = new ArrayList<>();
+        List<RecordReader> readers = new ArrayList<>();
+        try {
+            for (Path dir : dirs) {
+                String username = dir.getFileName().toString();
+                AppProperties.BotCredential cred = known.getOrDefault(username, offlineCredential(username));
+                BotSession session = new BotSession(cred, runtime, true);
+                sessions.add(session);
+                // a slot keeps cycle phases across turns; turns come from the log, not the engine
+                if (!Boolean.TRUE.equals(cred.getUseLlm())) rules.register(session, false);
+                RecordReader reader = new RecordReader(dir);
+                readers.add(reader);
+                Cursor cursor = new Cursor(session, reader, Boolean.TRUE.equals(cred.getUseLlm()));
+                if (cursor.advance()) queue.add(cursor);
+            }
+            if (queue.isEmpty()) {
+                log.info("replay: no records under {}", root);
+                return;
+            }
+
+            double speed = props.getRecord().getReplaySpeed();
+            long firstAt = queue.peek().next.at();
+            long startedAt = System.nanoTime();
+            long records = 0, snapshots = 0, decisions = 0, recordedCalls = 0, recordedFailures = 0;
+            long decideNanos = 0;
+
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                Recorded entry = cursor.next;
+                if (speed > 0) pace(startedAt, (long) ((entry.at() - firstAt) / speed));
+                records++;
+                if (entry instanceof Recorded.Snapshot s) {
+                    cursor.session.replaySnapshot(s.snapshot());
+                    snapshots++;
+                } else if (entry instanceof Recorded.Decide && !cursor.llm) {
+                    long t = System.nanoTime();
+                    cursor.session.decideAndActAsync().block();
+                    decideNanos += System.nanoTime() - t;
+                    decisions++;
+                } else if (entry instanceof Recorded.Act a && cursor.llm) {
+                    long t = System.nanoTime();
+                    cursor.session.replayAction(a.move(), a.lock(), a.text(), a.request()).block();
+                    decideNanos += System.nanoTime() - t;
+                    decisions++;
+                } else if (entry instanceof Recorded.Call c) {
+                    recordedCalls++;
+                    if (!c.ok()) recordedFailures++;
+                }
+                if (cursor.advance()) queue.add(cursor);
+            }
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            long issuedCalls = sessions.stream().mapToLong(BotSession::offlineCalls).sum();
+            log.info("replay of {} bot(s) done in {} ms: {} records, {} snapshots, {} decisions ({} decisions/s, {} us per decision)",
+                    sessions.size(), elapsedMs, records, snapshots, decisions,
+                    elapsedMs > 0 ? decisions * 1000 / elapsedMs : decisions,
+                    decisions > 0 ? TimeUnit.NANOSECONDS.toMicros(decideNanos / decisions) : 0);
+            log.info("replay calls: {} issued offline, {} recorded ({} failed when recorded)", issuedCalls, recordedCalls, recordedFailures);
+        } finally {
+            // drops the mapped segments; a failed replay must not keep them either
+            readers.forEach(RecordReader::close);
+            sessions.forEach(session -> {
+                rules.unregister(session);
+                session.stop();
+            });
+        }
+    }
+
+    private static void pace(long startedAt, long offsetMs) {
+        long waitNanos = startedAt + TimeUnit.MILLISECONDS.toNanos(offsetMs) - System.nanoTime();
+        if (waitNanos <= 0) return;
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static AppProperties.BotCredential offlineCredential(String username) {
+        AppProperties.BotCredential cred = new AppProperties.BotCredential();
+        cred.setUsername(username);
+        cred.setUseLlm(false);
+        return cred;
+    }
+
+    private static final class Cursor {
+
+        private final BotSession session;
+        private final RecordReader reader;
+        private final boolean llm;
+        private Recorded next;
+
+        Cursor(BotSession session, RecordReader reader, boolean llm) {
+            this.session = session;
+            this.reader = reader;
+            this.llm = llm;
+        }
+
+        boolean advance() {
+            next = reader.hasNext() ? reader.next() : null;
+            return next != null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Incoming friend requests a session has taken on, keyed by side and neighbor id. While a
+ * request stays on screen it is answered once, whether the snapshot handler or the LLM gets
+ * to it first. The claim is dropped when the request or the neighbor goes away, so a new
+ * request from the same seat is answered again.
+ */
+final class RequestClaims {
+
+    private final BotMetrics metrics;
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+
+    RequestClaims(BotMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** @return true if the caller should answer; false if it is already handled or in flight */
+    boolean claim(String side, SnapshotDTO.NeighborView neighbor) {
+        if (neighbor == null || !neighbor.isRequestToMe()) return false;
+        if (claimed.add(key(side, neighbor))) return true;
+        metrics.requestSuppressed();
+        return false;
+    }
+
+    void release(String side, SnapshotDTO.NeighborView neighbor) {
+        if (neighbor != null) claimed.remove(key(side, neighbor));
+    }
+
+    void observe(List<SnapshotDiff.Change> changes) {
+        for (SnapshotDiff.Change change : changes) {
+            switch (change.type()) {
+                case NEIGHBOR_LEFT, NEIGHBOR_REPLACED, REQUEST_WITHDRAWN -> release(change.side(), change.before());
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static String key(String side, SnapshotDTO.NeighborView neighbor) {
+        return side + ":" + neighbor.getId();
+    }
+}
@@ -0,0 +1,54 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties.BotCredential;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/** What one roster reload changed, counted in bots. */
+public record RosterDiff(int added, int removed, int updated, int unchanged) {
+
+    /** The work behind a diff: bots to start, bots to drain and entries to swap into running sessions. */
+    record Plan(List<BotCredential> start, List<String> drain, List<BotCredential> update, int unchanged) {
+
+        RosterDiff diff() {
+            return new RosterDiff(start.size(), drain.size(), update.size(), unchanged);
+        }
+    }
+
+    /**
+     * Compares the credentials of the running sessions with the desired roster. Pending bots,
+     * those still starting or draining, are neither started again nor drained; a starting bot
+     * picks up its latest entry once connected, a draining one is restarted once it has left.
+     */
+    static Plan plan(Map<String, BotCredential> running, Map<String, BotCredential> desired, Set<String> pending) {
+        Map<String, BotCredential> toStart = new LinkedHashMap<>(desired);
+        List<String> drain = new ArrayList<>();
+        List<BotCredential> update = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, BotCredential> e : running.entrySet()) {
+            BotCredential next = toStart.remove(e.getKey());
+            if (next == null) drain.add(e.getKey());
+            else if (differs(e.getValue(), next)) update.add(next);
+            else unchanged++;
+        }
+        toStart.keySet().removeAll(pending);
+        return new Plan(List.copyOf(toStart.values()), drain, update, unchanged);
+    }
+
+    static boolean differs(BotCredential current, BotCredential next) {
+        return !Objects.equals(current.getPassword(), next.getPassword())
+                || !Objects.equals(current.getFixedText(), next.getFixedText())
+                || needsReschedule(current, next);
+    }
+
+    // switching between LLM and rules, or between rule behaviors, moves the bot to another scheduler
+    static boolean needsReschedule(BotCredential current, BotCredential next) {
+        return !Objects.equals(current.getUseLlm(), next.getUseLlm())
+                || !Objects.equals(current.getBehavior(), next.getBehavior());
+    }
+}
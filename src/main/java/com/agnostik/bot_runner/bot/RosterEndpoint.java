@@ -0,0 +1,41 @@
+package com.agnostik.bot_runner.bot;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.Access;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * {@code /actuator/roster}: GET shows roster and running counts, POST re-reads the roster file.
+ * <p>
+ * A reload starts and stops bots, so the endpoint is not exposed over HTTP by default and is
+ * read-only even when it is. To enable reloads, add {@code roster} to
+ * {@code management.endpoints.web.exposure.include} and set
+ * {@code management.endpoint.roster.access=unrestricted}. Do that only behind a management
+ * port that is not reachable from outside ({@code management.server.port} and
+ * {@code management.server.address}) or with Spring Security in front of it.
+ */
+@Component
+@Endpoint(id = "roster", defaultAccess = Access.READ_ONLY)
+@RequiredArgsConstructor
+public class RosterEndpoint {
+
+    private final RosterReloader reloader;
+    private final BotRoster roster;
+    private final BotManager manager;
+
+    @ReadOperation
+    public Map<String, Integer> status() {
+        return Map.of("configured", roster.size(), "running", manager.runningCount());
+    }
+
+    @WriteOperation
+    public RosterDiff reload() throws IOException {
+        return reloader.reload();
+    }
+}
@@ -0,0 +1,86 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.env.YamlPropertySourceLoader;
+import org.springframework.core.env.PropertySource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Keeps the roster in step with {@code app.roster.path}. The file is bound with the same
+ * rules as application.yml and swapped into {@link BotRoster}. Then BotManager applies the
+ * difference, so a reload only costs the bots that changed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RosterReloader {
+
+    private final AppProperties props;
+    private final BotRoster roster;
+    private final BotManager manager;
+
+    private volatile FileTime seen;
+
+    // before the first launch, so the initial start already uses the file
+    @PostConstruct
+    void loadInitial() throws IOException {
+        Path path = path();
+        if (path == null || !Files.exists(path)) return;
+        seen = Files.getLastModifiedTime(path);
+        AppProperties next = read(path);
+        roster.replace(next.getBots(), next.getFleet());
+        log.info("roster loaded from {}: {} bot(s)", path, roster.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.roster.watch-interval-ms:2000}")
+    public void poll() {
+        Path path = path();
+        if (path == null || !Files.exists(path)) return;
+        try {
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (modified.equals(seen)) return;
+            // a broken file is reported once, not on every poll
+            seen = modified;
+            reload();
+        } catch (IOException | RuntimeException e) {
+            log.warn("roster reload from {} failed, keeping the current roster: {}", path, e.getMessage());
+        }
+    }
+
+    public synchronized RosterDiff reload() throws IOException {
+        Path path = path();
+        if (path == null) throw new IllegalStateException("app.roster.path is not set");
+        seen = Files.getLastModifiedTime(path);
+        AppProperties next = read(path);
+        roster.replace(next.getBots(), next.getFleet());
+        RosterDiff diff = manager.applyRoster();
+        log.info("roster reloaded from {}: {} added, {} removed, {} updated, {} unchanged",
+                path, diff.added(), diff.removed(), diff.updated(), diff.unchanged());
+        return diff;
+    }
+
+    private Path path() {
+        String path = props.getRoster().getPath();
+        return path != null && !path.isBlank() ? Path.of(path) : null;
+    }
+
+    private static AppProperties read(Path path) throws IOException {
+        List<PropertySource<?>> sources = new YamlPropertySourceLoader().load("roster", new FileSystemResource(path));
+        return new Binder(ConfigurationPropertySources.from(sources))
+                .bind("app", AppProperties.class)
+                .orElseGet(AppProperties::new);
+    }
+}
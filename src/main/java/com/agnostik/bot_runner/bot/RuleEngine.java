@@ -0,0 +1,285 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives every non-LLM bot from one thread. Rule state lives in parallel primitive arrays
+ * indexed by slot, not in the sessions: behavior, next turn, cycle phase and its deadline,
+ * next move, and a pending delayed unlock. Each tick walks those arrays once and, for a bot
+ * whose turn has come, runs a decision pass through its session. The pass ends back in
+ * {@link #act}. The session only keeps the connection and the shared action plumbing.
+ */
+@Component
+@Slf4j
+public class RuleEngine {
+
+    private static final byte PHASE_NONE = 0;
+    private static final byte PHASE_LOCKED = 1;
+    private static final byte PHASE_UNLOCKED = 2;
+
+    private final AppProperties.RuleBehavior[] behaviors;
+    private final Map<String, Integer> behaviorIndex = new HashMap<>();
+    private final int defaultBehavior;
+    private final ScheduledExecutorService executor;
+    private final Timer passTimer;
+
+    // struct-of-arrays, one entry per slot; slots are recycled through the free stack
+    private BotSession[] bots = new BotSession[64];
+    private byte[] behavior = new byte[64];
+    private boolean[] scheduled = new boolean[64];
+    private long[] nextTurnAt = new long[64];
+    private byte[] phase = new byte[64];
+    private long[] phaseEndsAt = new long[64];
+    private long[] nextMoveAt = new long[64];
+    private long[] unlockAt = new long[64];
+    private int[] free = new int[64];
+    private int freeCount;
+    private int used;
+    private int live;
+
+    public RuleEngine(AppProperties props, MeterRegistry registry) {
+        AppProperties.Rules cfg = props.getRules();
+        Map<String, AppProperties.RuleBehavior> declared = new LinkedHashMap<>(cfg.getBehaviors());
+        declared.putIfAbsent("random", new AppProperties.RuleBehavior());
+        if (declared.size() > Byte.MAX_VALUE) throw new IllegalStateException("too many rule behaviors: " + declared.size());
+        this.behaviors = declared.values().toArray(AppProperties.RuleBehavior[]::new);
+        int i = 0;
+        for (String name : declared.keySet()) behaviorIndex.put(name, i++);
+        this.defaultBehavior = indexOf(cfg.getDefaultBehavior());
+
+        this.passTimer = Timer.builder("bot.rules.pass")
+                .description("Time to walk every rule bot once")
+                .register(registry);
+        registry.gauge("bot.rules.bots", this, engine -> engine.live);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rule-engine");
+            t.setDaemon(true);
+            return t;
+        });
+        long tickMs = Math.max(10, cfg.getTickMs());
+        executor.scheduleAtFixedRate(this::pass, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Resolves a behavior name from config; unknown names are a configuration error. */
+    public int indexOf(String name) {
+        if (name == null || name.isBlank()) return defaultBehavior;
+        Integer index = behaviorIndex.get(name);
+        if (index == null) throw new IllegalStateException("unknown rule behavior '" + name + "', declared: " + behaviorIndex.keySet());
+        return index;
+    }
+
+    /**
+     * Gives the bot a slot. Scheduled bots take turns on the engine thread, starting at a
+     * random point in their first period. Unscheduled bots only act when their session
+     * decides, which is what replay does.
+     */
+    public synchronized void register(BotSession bot, boolean schedule) {
+        if (bot.ruleSlot >= 0) return;
+        // resolve first: an unknown behavior must not cost a slot
+        int b = indexOf(bot.credential().getBehavior());
+        int slot = freeCount > 0 ? free[--freeCount] : used++;
+        if (slot >= bots.length) grow();
+        bots[slot] = bot;
+        behavior[slot] = (byte) b;
+        scheduled[slot] = schedule;
+        nextTurnAt[slot] = System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(behaviors[b].getPeriodMs() + 1);
+        phase[slot] = PHASE_NONE;
+        phaseEndsAt[slot] = 0;
+        nextMoveAt[slot] = 0;
+        unlockAt[slot] = 0;
+        bot.ruleSlot = slot;
+        live++;
+    }
+
+    public synchronized void unregister(BotSession bot) {
+        int slot = bot.ruleSlot;
+        if (slot < 0 || bots[slot] != bot) return;
+        bots[slot] = null;
+        scheduled[slot] = false;
+        free[freeCount++] = slot;
+        bot.ruleSlot = -1;
+        live--;
+    }
+
+    private void grow() {
+        int size = bots.length * 2;
+        bots = Arrays.copyOf(bots, size);
+        behavior = Arrays.copyOf(behavior, size);
+        scheduled = Arrays.copyOf(scheduled, size);
+        nextTurnAt = Arrays.copyOf(nextTurnAt, size);
+        phase = Arrays.copyOf(phase, size);
+        phaseEndsAt = Arrays.copyOf(phaseEndsAt, size);
+        nextMoveAt = Arrays.copyOf(nextMoveAt, size);
+        unlockAt = Arrays.copyOf(unlockAt, size);
+        free = Arrays.copyOf(free, size);
+    }
+
+    private void pass() {
+        long started = System.nanoTime();
+        List<BotSession> due = new ArrayList<>();
+        List<BotSession> unlocking = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < used; i++) {
+                if (!scheduled[i]) continue;
+                if (unlockAt[i] != 0 && now >= unlockAt[i]) {
+                    unlockAt[i] = 0;
+                    unlocking.add(bots[i]);
+                }
+                if (now < nextTurnAt[i]) continue;
+                AppProperties.RuleBehavior rule = behaviors[behavior[i]];
+                long jitter = rule.getJitterMs() > 0 ? ThreadLocalRandom.current().nextLong(-rule.getJitterMs(), rule.getJitterMs() + 1) : 0;
+                nextTurnAt[i] = now + Math.max(1, rule.getPeriodMs() + jitter);
+                due.add(bots[i]);
+            }
+        }
+        // the session calls come back into act() on this thread; issuing them outside the
+        // walk keeps register/unregister from waiting on network setup
+        for (BotSession bot : unlocking) bot.unlockAsync().subscribe();
+        for (BotSession bot : due) {
+            try {
+                bot.decideAndActAsync().subscribe();
+            } catch (RuntimeException e) {
+                log.warn("rule turn failed for {}: {}", bot.getUsername(), e.getMessage());
+            }
+        }
+        passTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * One turn of the bot's behavior. Bots without a slot, such as LLM bots falling back while
+     * the model is down, get a stateless turn of the default behavior.
+     */
+    Mono<Void> act(BotSession bot) {
+        Mono<Void> calls;
+        synchronized (this) {
+            int slot = bot.ruleSlot;
+            boolean owned = slot >= 0 && bots[slot] == bot;
+            AppProperties.RuleBehavior rule = behaviors[owned ? behavior[slot] : defaultBehavior];
+            calls = rule.getKind() == AppProperties.RuleBehavior.Kind.CYCLE && owned
+                    ? cycle(bot, slot, rule)
+                    : random(bot, owned ? slot : -1, rule);
+        }
+        return calls.then(Mono.fromRunnable(() -> {
+            String fixed = bot.credential().getFixedText();
+            if (fixed != null && !fixed.isBlank()) bot.typeText(fixed);
+        }));
+    }
+
+    private Mono<Void> random(BotSession bot, int slot, AppProperties.RuleBehavior rule) {
+        SnapshotDTO snap = bot.getLastSnapshot().get();
+        if (snap == null) return Mono.empty();
+        Random rnd = bot.random();
+        List<Mono<Void>> calls = new ArrayList<>();
+
+        if (rnd.nextDouble() < rule.getMoveChance()) {
+            if (snap.getLeft() != null && snap.getRight() != null) {
+                calls.add(rnd.nextBoolean() ? bot.moveLeftAsync() : bot.moveRightAsync());
+            } else if (snap.getLeft() != null) {
+                calls.add(bot.moveLeftAsync());
+            } else if (snap.getRight() != null) {
+                calls.add(bot.moveRightAsync());
+            }
+        }
+
+        if (snap.getMe() != null) {
+            if (bot.presence().isLocked()) {
+                if (rnd.nextDouble() < rule.getUnlockChance()) calls.add(bot.unlockAsync());
+            } else if (rnd.nextDouble() < rule.getLockChance()) {
+                calls.add(bot.lockAsync().doOnSuccess(v -> unlockLater(bot, slot, rule.getRelockMs())));
+            }
+        }
+        return Mono.when(calls);
+    }
+
+    private void unlockLater(BotSession bot, int slot, long delayMs) {
+        synchronized (this) {
+            if (slot >= 0 && bots[slot] == bot && scheduled[slot]) {
+                unlockAt[slot] = System.currentTimeMillis() + delayMs;
+                return;
+            }
+        }
+        bot.unlockAfter(delayMs);
+    }
+
+    // lock/unlock ordering matters here, so these calls run one after another
+    private Mono<Void> cycle(BotSession bot, int slot, AppProperties.RuleBehavior rule) {
+        long now = System.currentTimeMillis();
+        if (phase[slot] == PHASE_NONE) {
+            phase[slot] = PHASE_LOCKED;
+            phaseEndsAt[slot] = now + rule.getLockPhaseMs();
+        }
+
+        if (phase[slot] == PHASE_LOCKED) {
+            // a lock immediately followed by the phase-ending unlock cancels out: only unlock
+            if (now >= phaseEndsAt[slot]) {
+                phase[slot] = PHASE_UNLOCKED;
+                phaseEndsAt[slot] = now + rule.getUnlockPhaseMs();
+                nextMoveAt[slot] = now;
+                return bot.unlockAsync();
+            }
+            return bot.lockAsync();
+        }
+
+        SnapshotDTO snap = bot.getLastSnapshot().get();
+        Mono<Void> move = null;
+        if (snap != null && (snap.getLeft() != null || snap.getRight() != null) && now >= nextMoveAt[slot]) {
+            boolean canMoveLeft = snap.getLeft() != null;
+            boolean canMoveRight = snap.getRight() != null;
+            boolean moveRight = bot.random().nextBoolean();
+            if (moveRight && canMoveRight) {
+                move = bot.moveRightAsync();
+            } else if (!moveRight && canMoveLeft) {
+                move = bot.moveLeftAsync();
+            } else if (canMoveRight) {
+                move = bot.moveRightAsync();
+            } else {
+                move = bot.moveLeftAsync();
+            }
+            nextMoveAt[slot] = now + rule.getMoveMinMs() + bot.random().nextLong(rule.getMoveJitterMs() + 1);
+        }
+
+        List<Mono<Void>> calls = new ArrayList<>();
+        boolean relock = now >= phaseEndsAt[slot];
+        if (move != null) {
+            calls.add(bot.unlockAsync());
+            calls.add(move);
+        } else if (!relock) {
+            calls.add(bot.unlockAsync());
+        } else if (bot.presence().isLocked()) {
+            bot.presence().merged("unlock");
+        }
+
+        if (relock) {
+            phase[slot] = PHASE_LOCKED;
+            phaseEndsAt[slot] = now + rule.getLockPhaseMs();
+            calls.add(bot.lockAsync());
+        }
+        return Flux.concat(calls).then();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
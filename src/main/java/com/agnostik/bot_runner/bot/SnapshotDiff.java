@@ -0,0 +1,69 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Typed differences between two consecutive snapshots of the same bot. Only neighbor-side
+ * changes are reported; the bot's own view and the corridor size are left out because
+ * nothing reacts to them.
+ */
+final class SnapshotDiff {
+
+    enum Type {
+        NEIGHBOR_ARRIVED,
+        NEIGHBOR_LEFT,
+        NEIGHBOR_REPLACED,
+        TEXT_CHANGED,
+        REQUEST_RECEIVED,
+        REQUEST_WITHDRAWN,
+        FRIENDSHIP_CHANGED,
+        LOCK_CHANGED
+    }
+
+    record Change(Type type, String side, SnapshotDTO.NeighborView before, SnapshotDTO.NeighborView after) {
+
+        // rule bots cycle their lock every few seconds; waking LLM neighbors for that would waste calls
+        boolean isMeaningful() {
+            return type != Type.REQUEST_WITHDRAWN && type != Type.FRIENDSHIP_CHANGED && type != Type.LOCK_CHANGED;
+        }
+    }
+
+    private SnapshotDiff() {
+    }
+
+    static List<Change> between(SnapshotDTO previous, SnapshotDTO next) {
+        List<Change> changes = new ArrayList<>(2);
+        diff(changes, "left", previous != null ? previous.getLeft() : null, next.getLeft());
+        diff(changes, "right", previous != null ? previous.getRight() : null, next.getRight());
+        return changes;
+    }
+
+    private static void diff(List<Change> out, String side, SnapshotDTO.NeighborView before, SnapshotDTO.NeighborView after) {
+        if (before == null && after == null) return;
+        if (after == null) {
+            out.add(new Change(Type.NEIGHBOR_LEFT, side, before, null));
+            return;
+        }
+        if (before == null || !Objects.equals(before.getId(), after.getId())) {
+            out.add(new Change(before == null ? Type.NEIGHBOR_ARRIVED : Type.NEIGHBOR_REPLACED, side, before, after));
+            if (after.isRequestToMe()) out.add(new Change(Type.REQUEST_RECEIVED, side, before, after));
+            return;
+        }
+        if (!Objects.equals(before.getText(), after.getText())) {
+            out.add(new Change(Type.TEXT_CHANGED, side, before, after));
+        }
+        if (before.isRequestToMe() != after.isRequestToMe()) {
+            out.add(new Change(after.isRequestToMe() ? Type.REQUEST_RECEIVED : Type.REQUEST_WITHDRAWN, side, before, after));
+        }
+        if (before.isFriend() != after.isFriend()) {
+            out.add(new Change(Type.FRIENDSHIP_CHANGED, side, before, after));
+        }
+        if (before.isLocked() != after.isLocked()) {
+            out.add(new Change(Type.LOCK_CHANGED, side, before, after));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.agnostik.bot_runner.bot;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public final class StartupReport {
+
+    private final long startedAt = System.nanoTime();
+    private final Map<String, List<Long>> phases = new ConcurrentHashMap<>();
+    private final AtomicInteger started = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public <T> Mono<T> time(String phase, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doOnSuccess(v -> record(phase, System.nanoTime() - start));
+        });
+    }
+
+    public void record(String phase, long nanos) {
+        phases.computeIfAbsent(phase, k -> Collections.synchronizedList(new ArrayList<>())).add(nanos);
+    }
+
+    /**
+     * Accounts for one bot's start: {@code true} started, {@code false} given up on purpose, an
+     * error failed. The error ends here, so one bad bot never cancels the rest of the launch.
+     */
+    public Mono<Void> track(String username, Mono<Boolean> start) {
+        return start.doOnNext(ok -> {
+                    if (ok) started();
+                })
+                .onErrorResume(e -> {
+                    failed(username, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    public void started() {
+        started.incrementAndGet();
+    }
+
+    public void failed(String username, Throwable error) {
+        failed.incrementAndGet();
+        log.warn("bot {} failed to start: {}", username, error.getMessage());
+    }
+
+    int startedCount() {
+        return started.get();
+    }
+
+    int failedCount() {
+        return failed.get();
+    }
+
+    int samples(String phase) {
+        List<Long> samples = phases.get(phase);
+        return samples != null ? samples.size() : 0;
+    }
+
+    public void log() {
+        log.info("startup finished in {} ms: started={} failed={}",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), started.get(), failed.get());
+        phases.forEach((phase, samples) -> {
+            List<Long> sorted;
+            synchronized (samples) {
+                sorted = new ArrayList<>(samples);
+            }
+            if (sorted.isEmpty()) return;
+            Collections.sort(sorted);
+            log.info("startup phase {}: n={} p50={} ms p99={} ms max={} ms", phase, sorted.size(),
+                    millis(percentile(sorted, 0.50)),
+                    millis(percentile(sorted, 0.99)),
+                    millis(sorted.get(sorted.size() - 1)));
+        });
+    }
+
+    private static long percentile(List<Long> sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
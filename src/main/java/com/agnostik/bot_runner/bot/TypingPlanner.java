@@ -0,0 +1,125 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns a text change into a short list of prefix frames. The existing text is only erased
+ * back to the prefix it shares with the new one, in a few frames, and the typing phase picks
+ * its chunk size so the frame rate and the bytes sent per second stay within budget.
+ */
+@Component
+public class TypingPlanner {
+
+    private final AppProperties.Typing cfg;
+
+    public TypingPlanner(AppProperties props) {
+        this.cfg = props.getTyping();
+    }
+
+    public AppProperties.Typing config() {
+        return cfg;
+    }
+
+    public TypingPlan plan(String previous, String next) {
+        if (previous == null) previous = "";
+        int common = commonPrefix(previous, next);
+
+        int erase = previous.length() - common;
+        int backspaceFrames = erase > 0 ? Math.max(1, Math.min(cfg.getBackspaceFrames(), erase)) : 0;
+
+        int remaining = next.length() - common;
+        long durationMs = Math.min(cfg.getMaxDurationMs(), Math.round(remaining / Math.max(1.0, cfg.getCharsPerSecond()) * 1000));
+        // when the new text is a prefix of the old one the last backspace frame already shows it
+        int typingFrames = remaining > 0 || erase == 0 ? typingFrames(common, remaining, durationMs) : 0;
+
+        int total = backspaceFrames + typingFrames;
+        String[] sources = new String[total];
+        int[] lengths = new int[total];
+        long[] delays = new long[total];
+
+        int i = 0;
+        for (int k = 1; k <= backspaceFrames; k++, i++) {
+            int len = previous.length() - (int) Math.ceil((double) erase * k / backspaceFrames);
+            sources[i] = typingFrames == 0 && k == backspaceFrames ? next : previous;
+            lengths[i] = safeLength(previous, len);
+            delays[i] = i == 0 ? 0 : jittered(cfg.getBackspaceFrameMs());
+        }
+
+        long interval = remaining > 0 ? Math.max(1, durationMs / typingFrames) : cfg.getBackspaceFrameMs();
+        for (int k = 1; k <= typingFrames; k++, i++) {
+            int len = k == typingFrames ? next.length() : common + (int) ((long) remaining * k / typingFrames);
+            sources[i] = next;
+            lengths[i] = safeLength(next, len);
+            delays[i] = i == 0 ? 0 : jittered(interval);
+        }
+        return new TypingPlan(sources, lengths, delays);
+    }
+
+    private int typingFrames(int common, int remaining, long durationMs) {
+        if (remaining <= 0) return 1;
+        double seconds = durationMs / 1000.0;
+        long byFrameRate = (long) Math.floor(cfg.getFramesPerSecond() * seconds);
+        // F frames of evenly growing prefixes cost F * common + remaining * (F + 1) / 2 bytes
+        double budget = cfg.getBytesPerSecond() * seconds - remaining / 2.0;
+        long byBandwidth = (long) Math.floor(budget / Math.max(1.0, common + remaining / 2.0));
+        long frames = Math.min(remaining, Math.min(byFrameRate, byBandwidth));
+        return (int) Math.max(1, frames);
+    }
+
+    private long jittered(long delayMs) {
+        double jitter = cfg.getJitter();
+        if (jitter <= 0 || delayMs <= 0) return delayMs;
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Math.max(1, Math.round(delayMs * factor));
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) i++;
+        return safeLength(a, i);
+    }
+
+    private static int safeLength(String s, int len) {
+        if (len > 0 && len < s.length() && Character.isHighSurrogate(s.charAt(len - 1))) return len - 1;
+        return len;
+    }
+
+    public static final class TypingPlan {
+
+        private final String[] sources;
+        private final int[] lengths;
+        private final long[] delays;
+
+        private TypingPlan(String[] sources, int[] lengths, long[] delays) {
+            this.sources = sources;
+            this.lengths = lengths;
+            this.delays = delays;
+        }
+
+        public int size() {
+            return lengths.length;
+        }
+
+        public String frame(int index) {
+            return sources[index].substring(0, lengths[index]);
+        }
+
+        public long delayBeforeMs(int index) {
+            return delays[index];
+        }
+
+        public String target() {
+            return sources[sources.length - 1];
+        }
+
+        public long totalBytes() {
+            long sum = 0;
+            for (int len : lengths) sum += len;
+            return sum;
+        }
+    }
+}
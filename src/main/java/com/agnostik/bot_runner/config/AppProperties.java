@@ -5,7 +5,10 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @ConfigurationProperties(prefix = "app")
@@ -14,6 +17,18 @@ public class AppProperties {
     private String baseUrl;
     private String wsEndpoint;
     private List<BotCredential> bots;
+    private Fleet fleet = new Fleet();
+    private Roster roster = new Roster();
+    private Shard shard = new Shard();
+    private Record record = new Record();
+    private PoolProperties httpPool = new PoolProperties();
+    private Ws ws = new Ws();
+    private Startup startup = new Startup();
+    private TokenCache tokenCache = new TokenCache();
+    private Scheduler scheduler = new Scheduler();
+    private Rules rules = new Rules();
+    private int timerThreads = 2;
+    private Typing typing = new Typing();
 
 
     @Data
@@ -23,5 +38,173 @@ public class AppProperties {
         private String password;
         private Boolean useLlm = true;
         private String fixedText;
+        // rule behavior for bots without the LLM; app.rules.default-behavior when unset
+        private String behavior;
+    }
+
+    /**
+     * Generated bots on top of the explicit {@code bots} list: {@code count} bots named
+     * {@code prefix + index}, with behaviors drawn by weight from {@code behaviorMix}
+     * ({@code llm}, {@code fixed} for the default rule behavior, or any name under
+     * {@code app.rules.behaviors}; all fixed when empty) and fixed texts shared from
+     * {@code textPool}.
+     * In the password template, {name} and {index} are replaced.
+     */
+    @Data
+    public static class Fleet {
+
+        private String prefix = "fleet-";
+        private int count = 0;
+        private int startIndex = 1;
+        private String passwordTemplate = "123456789";
+        private Map<String, Double> behaviorMix = new LinkedHashMap<>();
+        private List<String> textPool = new ArrayList<>();
+    }
+
+    /**
+     * Optional roster file with {@code app.bots} and {@code app.fleet} in the same layout as
+     * application.yml. Once set, the file is the source of truth for both. It is re-read
+     * when its modification time changes (checked every {@code watchIntervalMs}) or on a POST
+     * to the {@code roster} actuator endpoint.
+     */
+    @Data
+    public static class Roster {
+
+        private String path;
+        private long watchIntervalMs = 2000;
+    }
+
+    /**
+     * Which slice of the roster this instance runs. STATIC keeps the bots whose hash falls
+     * on {@code index} of {@code count}; RING places live members on a consistent-hash ring
+     * whose membership is shared through {@code membershipPath}.
+     */
+    @Data
+    public static class Shard {
+
+        private Mode mode = Mode.NONE;
+        private int index = 0;
+        private int count = 1;
+        private String memberId;
+        private int virtualNodes = 128;
+        private String membershipPath = "data/members.json";
+        private long heartbeatMs = 5000;
+        private long memberTtlMs = 15000;
+
+        public enum Mode {
+            NONE,
+            STATIC,
+            RING
+        }
+    }
+
+    /**
+     * Per-bot binary logs of received snapshots and issued actions under {@code dir}. With
+     * {@code replay} on, nothing connects: the logs are fed back into fresh sessions at
+     * {@code replaySpeed} times the recorded pace (0 = as fast as possible).
+     */
+    @Data
+    public static class Record {
+
+        private boolean enabled = false;
+        private String dir = "data/records";
+        private int segmentBytes = 4 * 1024 * 1024;
+        private boolean replay = false;
+        private double replaySpeed = 1.0;
+    }
+
+    @Data
+    public static class Ws {
+
+        private long heartbeatMs = 10000;
+        private int schedulerThreads = 2;
+        private long reconnectBaseMs = 1000;
+        private long reconnectMaxMs = 60000;
+        private double reconnectsPerSecond = 20;
+        private int reconnectConcurrency = 50;
+        private int senderThreads = 2;
+        private int outboundBatchSize = 8;
+    }
+
+    @Data
+    public static class Startup {
+
+        private int concurrency = 32;
+        private double connectsPerSecond = 20;
+        private long timeoutMs = 30000;
+    }
+
+    @Data
+    public static class TokenCache {
+
+        private boolean enabled = true;
+        private String path = "data/tokens.json";
+        private long refreshBeforeMs = 300000;
+        private long defaultTtlMs = 3600000;
+        private long flushIntervalMs = 2000;
+    }
+
+    @Data
+    public static class Scheduler {
+
+        private long periodMs = 8000;
+        private long jitterMs = 500;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private long lagReportIntervalMs = 60000;
+        private boolean eventDriven = false;
+        private long debounceMs = 250;
+        private long eventMinIntervalMs = 1500;
+        private long maxQuietMs = 30000;
+    }
+
+    /**
+     * Non-LLM bots are driven by one rule engine thread that checks every bot each
+     * {@code tickMs}. A bot acts when its own period comes due, using the behavior it names.
+     */
+    @Data
+    public static class Rules {
+
+        private long tickMs = 250;
+        private String defaultBehavior = "random";
+        private Map<String, RuleBehavior> behaviors = new LinkedHashMap<>();
+    }
+
+    /**
+     * RANDOM moves, locks and unlocks by chance on each turn. A lock it takes is released
+     * after {@code relockMs}. CYCLE alternates a locked phase with an unlocked phase, and
+     * moves every {@code moveMinMs..+moveJitterMs} while unlocked. Both then type their
+     * fixed text.
+     */
+    @Data
+    public static class RuleBehavior {
+
+        private Kind kind = Kind.RANDOM;
+        private long periodMs = 8000;
+        private long jitterMs = 500;
+        private double moveChance = 0.5;
+        private double lockChance = 0.4;
+        private double unlockChance = 0.6;
+        private long relockMs = 1200;
+        private long lockPhaseMs = 15000;
+        private long unlockPhaseMs = 30000;
+        private long moveMinMs = 1500;
+        private long moveJitterMs = 1500;
+
+        public enum Kind {
+            RANDOM,
+            CYCLE
+        }
+    }
+
+    @Data
+    public static class Typing {
+
+        private double framesPerSecond = 8;
+        private long bytesPerSecond = 4096;
+        private double charsPerSecond = 40;
+        private long maxDurationMs = 30000;
+        private int backspaceFrames = 3;
+        private long backspaceFrameMs = 60;
+        private double jitter = 0.2;
     }
 }
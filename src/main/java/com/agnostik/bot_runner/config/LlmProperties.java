@@ -15,5 +15,57 @@ public class LlmProperties {
     private Integer timeoutMs;
     private Boolean enabled = true;
     private Long minIntervalMs = 8000L;
+    private Boolean stream = false;
+    private PoolProperties pool = defaultPool();
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Guard guard = new Guard();
 
+    private static PoolProperties defaultPool() {
+        PoolProperties pool = new PoolProperties();
+        pool.setMaxConnections(50);
+        pool.setPendingAcquireMaxCount(500);
+        return pool;
+    }
+
+    @Data
+    public static class Batch {
+
+        private boolean enabled = true;
+        private long windowMs = 50;
+        private int maxSize = 16;
+        private int maxInFlight = 8;
+        private Mode mode = Mode.CONCURRENT;
+
+        public enum Mode {
+            CONCURRENT,
+            COMBINED
+        }
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = false;
+        private int maxEntries = 1000;
+        private long ttlMs = 60000;
+        private int maxVariants = 4;
+        private double refreshProbability = 0.25;
+    }
+
+    @Data
+    public static class Guard {
+
+        private boolean enabled = true;
+        private int initialLimit = 8;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private long targetLatencyMs = 5000;
+        private double backoffRatio = 0.7;
+        private int windowSize = 20;
+        private int minCalls = 10;
+        private double failureRateThreshold = 0.5;
+        private long openMs = 30000;
+        private int halfOpenCalls = 3;
+    }
 }
@@ -0,0 +1,16 @@
+package com.agnostik.bot_runner.config;
+
+import lombok.Data;
+
+@Data
+public class PoolProperties {
+
+    private int maxConnections = 500;
+    private int pendingAcquireMaxCount = 2000;
+    private long pendingAcquireTimeoutMs = 10000;
+    private long maxIdleTimeMs = 30000;
+    private long maxLifeTimeMs = 300000;
+    private long evictIntervalMs = 30000;
+    private int connectTimeoutMs = 5000;
+    private boolean metrics = true;
+}
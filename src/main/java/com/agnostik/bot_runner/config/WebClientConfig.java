@@ -0,0 +1,81 @@
+package com.agnostik.bot_runner.config;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Optional;
+
+@Configuration
+public class WebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider backendConnectionProvider(AppProperties props) {
+        return connectionProvider("backend", props.getHttpPool());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider llmConnectionProvider(LlmProperties llmProps) {
+        return connectionProvider("llm", llmProps.getPool());
+    }
+
+    @Bean
+    public WebClient backendWebClient(WebClient.Builder builder,
+                                      AppProperties props,
+                                      @Qualifier("backendConnectionProvider") ConnectionProvider provider) {
+        return builder.clone()
+                .baseUrl(props.getBaseUrl())
+                .clientConnector(connector(provider, props.getHttpPool()))
+                .build();
+    }
+
+    @Bean
+    public WebClient llmWebClient(WebClient.Builder builder,
+                                  LlmProperties llmProps,
+                                  @Qualifier("llmConnectionProvider") ConnectionProvider provider) {
+        return builder.clone()
+                .baseUrl(llmProps.getUrl())
+                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + resolveApiKey(llmProps))
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .clientConnector(connector(provider, llmProps.getPool()))
+                .build();
+    }
+
+    private static ConnectionProvider connectionProvider(String name, PoolProperties pool) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(pool.getPendingAcquireTimeoutMs()))
+                .maxIdleTime(Duration.ofMillis(pool.getMaxIdleTimeMs()))
+                .maxLifeTime(Duration.ofMillis(pool.getMaxLifeTimeMs()))
+                .evictInBackground(Duration.ofMillis(pool.getEvictIntervalMs()))
+                .metrics(pool.isMetrics())
+                .build();
+    }
+
+    private static ReactorClientHttpConnector connector(ConnectionProvider provider, PoolProperties pool) {
+        HttpClient client = HttpClient.create(provider)
+                .keepAlive(true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, pool.getConnectTimeoutMs());
+        return new ReactorClientHttpConnector(client);
+    }
+
+    private static String resolveApiKey(LlmProperties llmProps) {
+        if (llmProps.getApiKey() != null && !llmProps.getApiKey().isBlank()) {
+            return llmProps.getApiKey();
+        }
+        if (llmProps.getApiKeyEnv() != null && !llmProps.getApiKeyEnv().isBlank()) {
+            return Optional.ofNullable(System.getenv(llmProps.getApiKeyEnv())).orElse("");
+        }
+        return "";
+    }
+}
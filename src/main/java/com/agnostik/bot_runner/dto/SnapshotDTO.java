@@ -1,50 +1,41 @@
 package com.agnostik.bot_runner.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-@Data
-@NoArgsConstructor
-@AllArgsConstructor
+/**
+ * Immutable view of the corridor around one bot. Instances are shared between frames and
+ * sessions once decoded, so they are never modified in place.
+ */
+@Value
 public class SnapshotDTO {
 
-    private UserView me;
-    private NeighborView left;
-    private NeighborView right;
-    private CorridorInfo corridor;
+    UserView me;
+    NeighborView left;
+    NeighborView right;
+    CorridorInfo corridor;
 
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Value
     public static class UserView {
 
-        private Long id;
-        private String text;
-        private boolean locked;
-        private Integer myIndex;
+        Long id;
+        String text;
+        boolean locked;
+        Integer myIndex;
     }
 
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Value
     public static class NeighborView {
 
-        private Long id;
-        private String text;
-        private boolean locked;
-        private boolean friend;
-        private boolean requestToMe;
-        private boolean requestFromMe;
+        Long id;
+        String text;
+        boolean locked;
+        boolean friend;
+        boolean requestToMe;
+        boolean requestFromMe;
     }
 
-    @Data
-    @NoArgsConstructor
-    @AllArgsConstructor
+    @Value
     public static class CorridorInfo {
-        private Integer size;
+        Integer size;
     }
 }
-
-
-
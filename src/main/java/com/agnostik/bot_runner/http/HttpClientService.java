@@ -1,11 +1,15 @@
 package com.agnostik.bot_runner.http;
 
-import com.agnostik.bot_runner.config.AppProperties;
 import com.agnostik.bot_runner.dto.AuthenticationResponseDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
 
 import java.util.Map;
 import java.util.function.Consumer;
@@ -14,52 +18,93 @@ import java.util.function.Consumer;
 @RequiredArgsConstructor
 public class HttpClientService {
 
-    private final WebClient.Builder webClientBuilder;
-    private final AppProperties props;
-
-    private WebClient client() {
-        return webClientBuilder.baseUrl(props.getBaseUrl()).build();
-    }
+    @Qualifier("backendWebClient")
+    private final WebClient client;
+    private final MeterRegistry registry;
 
     private Consumer<HttpHeaders> auth(String jwt) {
         return h -> h.setBearerAuth(jwt);
     }
 
     public AuthenticationResponseDTO login(String username, String password) {
-        return client().post()
-                .uri("/api/auth/login")
-                .bodyValue(Map.of("username", username, "password", password))
-                .retrieve()
-                .bodyToMono(AuthenticationResponseDTO.class)
-                .block();
+        return loginAsync(username, password).block();
     }
 
     public AuthenticationResponseDTO register(String username, String password) {
-        return client().post()
-                .uri("/api/auth/register")
+        return registerAsync(username, password).block();
+    }
+
+    public Mono<AuthenticationResponseDTO> loginAsync(String username, String password) {
+        return authenticate("login", "/api/auth/login", username, password);
+    }
+
+    public Mono<AuthenticationResponseDTO> registerAsync(String username, String password) {
+        return authenticate("register", "/api/auth/register", username, password);
+    }
+
+    public void moveLeft(String jwt) { post("moveLeft", "/api/presence/moveLeft", jwt); }
+    public void moveRight(String jwt) { post("moveRight", "/api/presence/moveRight", jwt); }
+    public void lock(String jwt) { post("lock", "/api/presence/lock", jwt); }
+    public void unlock(String jwt) { post("unlock", "/api/presence/unlock", jwt); }
+    public void leave(String jwt) { post("leave", "/api/presence/leave", jwt); }
+
+    public void sendRequest(String direction, String jwt) { post("sendRequest", "/api/requests/send/" + direction, jwt); }
+    public void accept(String direction, String jwt) { post("accept", "/api/requests/accept/" + direction, jwt); }
+    public void reject(String direction, String jwt) { post("reject", "/api/requests/reject/" + direction, jwt); }
+
+    public Mono<Void> moveLeftAsync(String jwt) { return postAsync("moveLeft", "/api/presence/moveLeft", jwt); }
+    public Mono<Void> moveRightAsync(String jwt) { return postAsync("moveRight", "/api/presence/moveRight", jwt); }
+    public Mono<Void> lockAsync(String jwt) { return postAsync("lock", "/api/presence/lock", jwt); }
+    public Mono<Void> unlockAsync(String jwt) { return postAsync("unlock", "/api/presence/unlock", jwt); }
+    public Mono<Void> leaveAsync(String jwt) { return postAsync("leave", "/api/presence/leave", jwt); }
+
+    public Mono<Void> sendRequestAsync(String direction, String jwt) { return postAsync("sendRequest", "/api/requests/send/" + direction, jwt); }
+    public Mono<Void> acceptAsync(String direction, String jwt) { return postAsync("accept", "/api/requests/accept/" + direction, jwt); }
+    public Mono<Void> rejectAsync(String direction, String jwt) { return postAsync("reject", "/api/requests/reject/" + direction, jwt); }
+
+    private Mono<AuthenticationResponseDTO> authenticate(String endpoint, String path, String username, String password) {
+        return timed(endpoint, client.post()
+                .uri(path)
                 .bodyValue(Map.of("username", username, "password", password))
                 .retrieve()
-                .bodyToMono(AuthenticationResponseDTO.class)
-                .block();
+                .bodyToMono(AuthenticationResponseDTO.class));
     }
 
-    public void moveLeft(String jwt) { post("/api/presence/moveLeft", jwt); }
-    public void moveRight(String jwt) { post("/api/presence/moveRight", jwt); }
-    public void lock(String jwt) { post("/api/presence/lock", jwt); }
-    public void unlock(String jwt) { post("/api/presence/unlock", jwt); }
-    public void leave(String jwt) { post("/api/presence/leave", jwt); }
-
-    public void sendRequest(String direction, String jwt) { post("/api/requests/send/" + direction, jwt); }
-    public void accept(String direction, String jwt) { post("/api/requests/accept/" + direction, jwt); }
-    public void reject(String direction, String jwt) { post("/api/requests/reject/" + direction, jwt); }
+    private void post(String endpoint, String path, String jwt) {
+        postAsync(endpoint, path, jwt).block();
+    }
 
-    private void post(String path, String jwt) {
-        client().post()
+    private Mono<Void> postAsync(String endpoint, String path, String jwt) {
+        return timed(endpoint, client.post()
                 .uri(path)
                 .headers(auth(jwt))
                 .retrieve()
                 .toBodilessEntity()
-                .block();
+                .then());
     }
-}
 
+    // tagged by logical endpoint rather than path, so send/accept/reject do not split by direction
+    private <T> Mono<T> timed(String endpoint, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call
+                    .doOnSuccess(v -> sample.stop(timer(endpoint, "success")))
+                    .doOnError(e -> sample.stop(timer(endpoint, outcome(e))));
+        });
+    }
+
+    private Timer timer(String endpoint, String outcome) {
+        return Timer.builder("backend.requests")
+                .description("Calls to the corridor backend by endpoint")
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static String outcome(Throwable e) {
+        if (e instanceof WebClientResponseException r) {
+            return r.getStatusCode().is4xxClientError() ? "client_error" : "server_error";
+        }
+        return "io_error";
+    }
+}
@@ -0,0 +1,168 @@
+package com.agnostik.bot_runner.llm;
+
+/**
+ * Push parser for a single flat JSON object that arrives in arbitrary chunks, as with a
+ * streamed completion. String values are reported chunk by chunk while they are still open
+ * and once more in full when they close; literals are reported when they end. Anything
+ * before the opening brace (prose, code fences) is skipped and nested values are ignored.
+ */
+public final class IncrementalJsonParser {
+
+    public interface Listener {
+
+        default void onValueChunk(String field, String chunk) {
+        }
+
+        void onValue(String field, String value);
+    }
+
+    private enum State { START, KEY_OR_END, KEY, COLON, VALUE, STRING, LITERAL, NESTED, COMMA_OR_END, DONE }
+
+    private final Listener listener;
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    private final StringBuilder chunk = new StringBuilder();
+    private State state = State.START;
+    private String field;
+    private boolean escape;
+    private int unicodeLeft;
+    private int unicodeValue;
+    private int nestedDepth;
+    private boolean nestedInString;
+
+    public IncrementalJsonParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    public void feed(CharSequence input) {
+        for (int i = 0; i < input.length(); i++) {
+            accept(input.charAt(i));
+        }
+        flushChunk();
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case START -> {
+                if (c == '{') state = State.KEY_OR_END;
+            }
+            case KEY_OR_END -> {
+                if (c == '"') {
+                    key.setLength(0);
+                    state = State.KEY;
+                } else if (c == '}') {
+                    state = State.DONE;
+                }
+            }
+            case KEY -> {
+                if (escape) {
+                    key.append(c);
+                    escape = false;
+                } else if (c == '\\') {
+                    escape = true;
+                } else if (c == '"') {
+                    field = key.toString();
+                    state = State.COLON;
+                } else {
+                    key.append(c);
+                }
+            }
+            case COLON -> {
+                if (c == ':') state = State.VALUE;
+            }
+            case VALUE -> {
+                if (Character.isWhitespace(c)) return;
+                value.setLength(0);
+                if (c == '"') {
+                    state = State.STRING;
+                } else if (c == '{' || c == '[') {
+                    nestedDepth = 1;
+                    nestedInString = false;
+                    state = State.NESTED;
+                } else {
+                    value.append(c);
+                    state = State.LITERAL;
+                }
+            }
+            case STRING -> acceptStringChar(c);
+            case LITERAL -> {
+                if (c == ',' || c == '}' || Character.isWhitespace(c)) {
+                    String literal = value.toString();
+                    listener.onValue(field, "null".equals(literal) ? "" : literal);
+                    state = State.COMMA_OR_END;
+                    if (!Character.isWhitespace(c)) accept(c);
+                } else {
+                    value.append(c);
+                }
+            }
+            case NESTED -> acceptNestedChar(c);
+            case COMMA_OR_END -> {
+                if (c == ',') state = State.KEY_OR_END;
+                else if (c == '}') state = State.DONE;
+            }
+            case DONE -> {
+            }
+        }
+    }
+
+    private void acceptStringChar(char c) {
+        if (unicodeLeft > 0) {
+            unicodeValue = (unicodeValue << 4) | Character.digit(c, 16);
+            if (--unicodeLeft == 0) append((char) unicodeValue);
+            return;
+        }
+        if (escape) {
+            escape = false;
+            switch (c) {
+                case 'n' -> append('\n');
+                case 't' -> append('\t');
+                case 'r' -> append('\r');
+                case 'b' -> append('\b');
+                case 'f' -> append('\f');
+                case 'u' -> {
+                    unicodeLeft = 4;
+                    unicodeValue = 0;
+                }
+                default -> append(c);
+            }
+            return;
+        }
+        if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            flushChunk();
+            listener.onValue(field, value.toString());
+            state = State.COMMA_OR_END;
+        } else {
+            append(c);
+        }
+    }
+
+    private void acceptNestedChar(char c) {
+        if (nestedInString) {
+            if (escape) escape = false;
+            else if (c == '\\') escape = true;
+            else if (c == '"') nestedInString = false;
+            return;
+        }
+        if (c == '"') nestedInString = true;
+        else if (c == '{' || c == '[') nestedDepth++;
+        else if ((c == '}' || c == ']') && --nestedDepth == 0) state = State.COMMA_OR_END;
+    }
+
+    private void append(char c) {
+        value.append(c);
+        chunk.append(c);
+    }
+
+    private void flushChunk() {
+        if (chunk.length() > 0) {
+            listener.onValueChunk(field, chunk.toString());
+            chunk.setLength(0);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.agnostik.bot_runner.llm;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects LLM decisions that come due at about the same time into short batches.
+ * In CONCURRENT mode each prompt is still its own request, but all of them share one
+ * in-flight limit: the guard's adaptive limit, or {@code batch.max-in-flight} with the guard off. In COMBINED mode one request carries every bot state in the batch and
+ * the model answers with a JSON array, one action per bot.
+ */
+@Service
+@Slf4j
+public class LlmBatcher {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LlmService llm;
+    private final LlmGuard guard;
+    private final LlmProperties llmProps;
+    private final LlmProperties.Batch cfg;
+    private final int inFlight;
+    private final Sinks.Many<Pending> queue = Sinks.many().unicast().onBackpressureBuffer();
+    private final Disposable pipeline;
+
+    public LlmBatcher(LlmService llm, LlmGuard guard, LlmProperties llmProps) {
+        this.llm = llm;
+        this.guard = guard;
+        this.llmProps = llmProps;
+        this.cfg = llmProps.getBatch();
+
+        Flux<List<Pending>> batches = queue.asFlux()
+                .bufferTimeout(Math.max(1, cfg.getMaxSize()), Duration.ofMillis(Math.max(1, cfg.getWindowMs())));
+        // with the guard on, dispatches wait in guardQueued, so only its adaptive limit applies
+        LlmProperties.Guard guardCfg = llmProps.getGuard();
+        this.inFlight = Math.max(1, guardCfg.isEnabled() ? guardCfg.getMaxLimit() : cfg.getMaxInFlight());
+        if (cfg.getMode() == LlmProperties.Batch.Mode.COMBINED) {
+            this.pipeline = batches.flatMap(this::dispatchCombined, inFlight).subscribe();
+        } else {
+            this.pipeline = batches.flatMapIterable(batch -> batch).flatMap(this::dispatchSingle, inFlight).subscribe();
+        }
+    }
+
+    public boolean isAvailable() {
+        return guard.isAvailable();
+    }
+
+    public Mono<String> submit(String instructions, String state) {
+        if (!cfg.isEnabled()) return guard.guard(() -> llm.generateAsync(instructions + state));
+        return Mono.create(sink -> {
+            Sinks.EmitResult result;
+            synchronized (queue) {
+                result = queue.tryEmitNext(new Pending(instructions, state, sink));
+            }
+            if (result.isFailure()) sink.error(new IllegalStateException("llm batch queue rejected request: " + result));
+        });
+    }
+
+    // streamed completions are consumed token by token, so they go straight to the endpoint
+    public Flux<String> stream(String prompt) {
+        return guard.guardMany(() -> llm.stream(prompt));
+    }
+
+    private Mono<Void> dispatchSingle(Pending p) {
+        return guard.guardQueued(() -> llm.generateAsync(p.instructions() + p.state()))
+                .doOnSuccess(p.sink()::success)
+                .doOnError(p.sink()::error)
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<Void> dispatchCombined(List<Pending> batch) {
+        if (batch.size() == 1) return dispatchSingle(batch.get(0));
+
+        Map<String, List<Pending>> byInstructions = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            byInstructions.computeIfAbsent(p.instructions(), k -> new ArrayList<>()).add(p);
+        }
+        return Flux.fromIterable(byInstructions.values())
+                .flatMap(group -> group.size() == 1 ? dispatchSingle(group.get(0)) : combined(group))
+                .then();
+    }
+
+    private Mono<Void> combined(List<Pending> group) {
+        StringBuilder sb = new StringBuilder(group.get(0).instructions());
+        sb.append("You are answering for ").append(group.size()).append(" independent bots at once. ");
+        sb.append("Respond with ONLY a JSON array of ").append(group.size())
+                .append(" objects, element i being the decision for bot i, each using the schema above.\n");
+        for (int i = 0; i < group.size(); i++) {
+            sb.append("Bot ").append(i + 1).append(":\n").append(group.get(i).state());
+        }
+        Integer maxTokens = llmProps.getMaxTokens() != null ? llmProps.getMaxTokens() * group.size() : null;
+
+        return guard.guardQueued(() -> llm.generateAsync(sb.toString(), maxTokens))
+                .map(response -> split(response, group.size()))
+                .doOnNext(answers -> {
+                    for (int i = 0; i < group.size(); i++) group.get(i).sink().success(answers.get(i));
+                })
+                .then()
+                .onErrorResume(e -> {
+                    if (e instanceof LlmUnavailableException || e instanceof LlmSaturatedException) {
+                        group.forEach(p -> p.sink().error(e));
+                        return Mono.empty();
+                    }
+                    log.debug("combined llm batch of {} failed, falling back to single requests: {}", group.size(), e.getMessage());
+                    // same bound as the pipeline; the endpoint may be struggling already
+                    return Flux.fromIterable(group).flatMap(this::dispatchSingle, inFlight).then();
+                });
+    }
+
+    static List<String> split(String response, int expected) {
+        int start = response.indexOf('[');
+        int end = response.lastIndexOf(']');
+        if (start < 0 || end <= start) throw new IllegalArgumentException("no JSON array in combined response");
+        try {
+            JsonNode array = MAPPER.readTree(response.substring(start, end + 1));
+            if (!array.isArray() || array.size() != expected) {
+                throw new IllegalArgumentException("expected " + expected + " answers, got " + array.size());
+            }
+            List<String> answers = new ArrayList<>(expected);
+            for (JsonNode node : array) answers.add(node.toString());
+            return answers;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("unparseable combined response", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pipeline.dispose();
+    }
+
+    private record Pending(String instructions, String state, MonoSink<String> sink) {}
+}
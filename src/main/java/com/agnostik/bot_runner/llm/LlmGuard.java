@@ -0,0 +1,288 @@
+package com.agnostik.bot_runner.llm;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive concurrency limit plus circuit breaker for LLM calls. The limit grows by one per
+ * limit's worth of fast successes and shrinks multiplicatively on slow or failed calls (AIMD).
+ * The breaker opens when the failure rate over the last calls crosses the threshold, lets a few
+ * trial calls through after a cool-down, and closes again once they succeed. A call turned away
+ * by the breaker fails with {@link LlmUnavailableException}; one turned away by a full limit
+ * fails with {@link LlmSaturatedException}, since the endpoint itself is fine. Streams are judged
+ * on time to first element, because a long answer that starts quickly is not a slow endpoint.
+ * {@link #guardQueued} waits for room under the limit instead, so a batch queue sized to the
+ * maximum limit follows the adaptive one.
+ */
+@Component
+@Slf4j
+public class LlmGuard {
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    private final LlmProperties.Guard cfg;
+    private final long targetLatencyNanos;
+    private final boolean[] outcomes;
+    private final Counter rejectedByLimit;
+    private final Counter rejectedByBreaker;
+    // queued callers waiting for a permit, admitted in arrival order as permits come back
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+    private int outcomeIndex;
+    private int outcomeCount;
+    private int failureCount;
+
+    public LlmGuard(LlmProperties llmProps, MeterRegistry registry) {
+        this.cfg = llmProps.getGuard();
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(cfg.getTargetLatencyMs());
+        this.outcomes = new boolean[Math.max(1, cfg.getWindowSize())];
+        this.limit = cfg.getInitialLimit();
+        this.rejectedByLimit = registry.counter("llm.guard.rejected", "reason", "limit");
+        this.rejectedByBreaker = registry.counter("llm.guard.rejected", "reason", "breaker");
+        registry.gauge("llm.guard.limit", this, g -> g.limit());
+        registry.gauge("llm.guard.in.flight", this, g -> g.inFlight());
+        registry.gauge("llm.guard.waiting", this, g -> g.waiting());
+        registry.gauge("llm.guard.breaker.state", this, g -> g.state().ordinal());
+    }
+
+    public synchronized double limit() {
+        return limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= cfg.getOpenMs()) {
+            transition(State.HALF_OPEN);
+        }
+        return state;
+    }
+
+    public boolean isAvailable() {
+        return !cfg.isEnabled() || state() != State.OPEN;
+    }
+
+    public <T> Mono<T> guard(Supplier<Mono<T>> call) {
+        if (!cfg.isEnabled()) return Mono.defer(call);
+        return Mono.defer(() -> run(acquire(null), call));
+    }
+
+    /** Like {@link #guard}, but a full limit makes the call wait its turn instead of failing. */
+    public <T> Mono<T> guardQueued(Supplier<Mono<T>> call) {
+        if (!cfg.isEnabled()) return Mono.defer(call);
+        return Mono.<Permit>create(sink -> {
+            Waiter waiter = new Waiter(sink);
+            sink.onCancel(() -> withdraw(waiter));
+            Permit permit = acquire(waiter);
+            if (permit != null) sink.success(permit);
+        }).flatMap(permit -> run(permit, call));
+    }
+
+    public synchronized int waiting() {
+        return waiters.size();
+    }
+
+    private static <T> Mono<T> run(Permit permit, Supplier<Mono<T>> call) {
+        return Mono.defer(call)
+                .doOnSuccess(v -> permit.complete(true))
+                .doOnError(e -> permit.complete(false))
+                .doOnCancel(permit::cancel);
+    }
+
+    public <T> Flux<T> guardMany(Supplier<Flux<T>> call) {
+        if (!cfg.isEnabled()) return Flux.defer(call);
+        return Flux.defer(() -> {
+            Permit permit = acquire(null);
+            return call.get()
+                    .doOnNext(v -> permit.firstElement())
+                    .doOnComplete(() -> permit.complete(true))
+                    .doOnError(e -> permit.complete(false))
+                    .doOnCancel(permit::cancel);
+        });
+    }
+
+    // a null waiter fails fast on a full limit; otherwise the waiter is queued and null returned
+    private synchronized Permit acquire(Waiter waiter) {
+        // queued callers line up behind the ones already waiting
+        Permit permit = waiter == null || waiters.isEmpty() ? tryAcquire() : null;
+        if (permit != null) {
+            if (waiter != null) waiter.granted = permit;
+            return permit;
+        }
+        if (waiter == null) {
+            rejectedByLimit.increment();
+            throw new LlmSaturatedException("llm concurrency limit " + (int) limit + " reached");
+        }
+        waiters.add(waiter);
+        return null;
+    }
+
+    // null when the limit is full
+    private Permit tryAcquire() {
+        State current = state();
+        if (current == State.OPEN) {
+            rejectedByBreaker.increment();
+            throw new LlmUnavailableException("llm circuit breaker is open");
+        }
+        if (current == State.HALF_OPEN && halfOpenPermits <= 0) {
+            rejectedByBreaker.increment();
+            throw new LlmUnavailableException("llm circuit breaker is probing");
+        }
+        if (inFlight >= Math.max(1, (int) limit)) return null;
+        if (current == State.HALF_OPEN) halfOpenPermits--;
+        inFlight++;
+        return new Permit(System.nanoTime());
+    }
+
+    // runs after every release; sinks are signalled outside the lock since they start the call
+    private void admitWaiters() {
+        while (true) {
+            Waiter next;
+            Permit permit = null;
+            LlmUnavailableException refused = null;
+            synchronized (this) {
+                next = waiters.peek();
+                if (next == null) return;
+                try {
+                    permit = tryAcquire();
+                } catch (LlmUnavailableException e) {
+                    refused = e;
+                }
+                if (permit == null && refused == null) return;
+                waiters.poll();
+                next.granted = permit;
+            }
+            if (refused != null) next.sink.error(refused);
+            else next.sink.success(permit);
+        }
+    }
+
+    private void withdraw(Waiter waiter) {
+        Permit granted;
+        synchronized (this) {
+            if (waiters.remove(waiter)) return;
+            granted = waiter.granted;
+        }
+        // admitted just before the cancel; giving it back is a no-op if the call already released it
+        if (granted != null) granted.cancel();
+    }
+
+    private synchronized void release(long latencyNanos, boolean success) {
+        inFlight--;
+        boolean slow = latencyNanos > targetLatencyNanos;
+        if (success && !slow) {
+            limit = Math.min(cfg.getMaxLimit(), limit + 1.0 / limit);
+        } else {
+            limit = Math.max(cfg.getMinLimit(), limit * cfg.getBackoffRatio());
+        }
+        record(success);
+    }
+
+    private synchronized void releaseCancelled() {
+        inFlight--;
+        if (state == State.HALF_OPEN) halfOpenPermits++;
+    }
+
+    private void record(boolean success) {
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                transition(State.OPEN);
+            } else if (++halfOpenSuccesses >= cfg.getHalfOpenCalls()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) return;
+
+        if (outcomeCount == outcomes.length) {
+            if (!outcomes[outcomeIndex]) failureCount--;
+        } else {
+            outcomeCount++;
+        }
+        outcomes[outcomeIndex] = success;
+        if (!success) failureCount++;
+        outcomeIndex = (outcomeIndex + 1) % outcomes.length;
+
+        if (outcomeCount >= cfg.getMinCalls() && (double) failureCount / outcomeCount >= cfg.getFailureRateThreshold()) {
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State next) {
+        if (state == next) return;
+        log.info("llm circuit breaker {} -> {} (limit {})", state, next, String.format("%.1f", limit));
+        state = next;
+        switch (next) {
+            case OPEN -> openedAt = System.currentTimeMillis();
+            case HALF_OPEN -> {
+                halfOpenPermits = Math.max(1, cfg.getHalfOpenCalls());
+                halfOpenSuccesses = 0;
+            }
+            case CLOSED -> {
+                outcomeIndex = 0;
+                outcomeCount = 0;
+                failureCount = 0;
+            }
+        }
+    }
+
+    private final class Permit {
+
+        private final long startedAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long firstElementAt;
+
+        private Permit(long startedAt) {
+            this.startedAt = startedAt;
+        }
+
+        private void firstElement() {
+            if (firstElementAt == 0) firstElementAt = System.nanoTime();
+        }
+
+        private void complete(boolean success) {
+            long end = firstElementAt != 0 ? firstElementAt : System.nanoTime();
+            if (released.compareAndSet(false, true)) {
+                release(end - startedAt, success);
+                admitWaiters();
+            }
+        }
+
+        private void cancel() {
+            if (released.compareAndSet(false, true)) {
+                releaseCancelled();
+                admitWaiters();
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Permit> sink;
+        private volatile Permit granted;
+
+        private Waiter(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.agnostik.bot_runner.llm;
+
+/** The endpoint is healthy but the adaptive concurrency limit is full; try again next turn. */
+public class LlmSaturatedException extends RuntimeException {
+
+    public LlmSaturatedException(String message) {
+        super(message);
+    }
+}
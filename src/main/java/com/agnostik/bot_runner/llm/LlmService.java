@@ -1,65 +1,149 @@
 package com.agnostik.bot_runner.llm;
 
 import com.agnostik.bot_runner.config.LlmProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class LlmService {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Qualifier("llmWebClient")
+    private final WebClient client;
     private final LlmProperties llmProps;
+    private final MeterRegistry registry;
 
-    private WebClient client() {
-        return webClientBuilder
-                .baseUrl(llmProps.getUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + resolveApiKey())
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
+    public String generate(String prompt) {
+        return generateAsync(prompt).block();
     }
 
-    private String resolveApiKey() {
-        if (llmProps.getApiKey() != null && !llmProps.getApiKey().isBlank()) {
-            return llmProps.getApiKey();
-        }
-        if (llmProps.getApiKeyEnv() != null && !llmProps.getApiKeyEnv().isBlank()) {
-            return Optional.ofNullable(System.getenv(llmProps.getApiKeyEnv())).orElse("");
-        }
-        return "";
+    public Mono<String> generateAsync(String prompt) {
+        return generateAsync(prompt, llmProps.getMaxTokens());
     }
 
-    public String generate(String prompt) {
+    public Mono<String> generateAsync(String prompt, Integer maxTokens) {
         var body = Map.of(
                 "model", llmProps.getModel(),
                 "messages", new Object[]{
                         Map.of("role", "user", "content", prompt)
                 },
-                "max_tokens", llmProps.getMaxTokens(),
+                "max_tokens", maxTokens,
                 "temperature", llmProps.getTemperature()
         );
 
-        Mono<Map<String, Object>> mono = client()
+        return timed("blocking", client
                 .post()
                 .bodyValue(body)
                 .retrieve()
                 .bodyToMono(new ParameterizedTypeReference<Map<String, Object>>() {})
-                .timeout(Duration.ofMillis(llmProps.getTimeoutMs()));
+                .timeout(Duration.ofMillis(llmProps.getTimeoutMs()))
+                .doOnNext(response -> recordUsage(response.get("usage")))
+                .mapNotNull(this::extractContent));
+    }
+
+    public Flux<String> stream(String prompt) {
+        var body = Map.of(
+                "model", llmProps.getModel(),
+                "messages", new Object[]{
+                        Map.of("role", "user", "content", prompt)
+                },
+                "max_tokens", llmProps.getMaxTokens(),
+                "temperature", llmProps.getTemperature(),
+                "stream", true
+        );
+
+        Flux<String> chunks = client
+                .post()
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(body)
+                .retrieve()
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                .timeout(Duration.ofMillis(llmProps.getTimeoutMs()))
+                .mapNotNull(ServerSentEvent::data)
+                .takeWhile(data -> !"[DONE]".equals(data.trim()))
+                .mapNotNull(this::extractDelta);
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return chunks
+                    .doOnComplete(() -> sample.stop(timer("stream", "success")))
+                    .doOnError(e -> sample.stop(timer("stream", outcome(e))))
+                    .doOnCancel(() -> sample.stop(timer("stream", "cancelled")));
+        });
+    }
+
+    private Mono<String> timed(String mode, Mono<String> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call
+                    .doOnSuccess(v -> sample.stop(timer(mode, "success")))
+                    .doOnError(e -> sample.stop(timer(mode, outcome(e))))
+                    .doOnCancel(() -> sample.stop(timer(mode, "cancelled")));
+        });
+    }
+
+    private Timer timer(String mode, String outcome) {
+        return Timer.builder("llm.requests")
+                .description("LLM completion latency, to the last chunk when streaming")
+                .tag("mode", mode)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private static String outcome(Throwable e) {
+        return e instanceof TimeoutException ? "timeout" : "error";
+    }
 
-        Map<String, Object> response = mono.block();
-        if (response == null) return null;
+    // OpenAI-style usage block; streaming servers only send it on the last chunk, if at all
+    private void recordUsage(Object usage) {
+        if (!(usage instanceof Map<?, ?> u)) return;
+        countTokens("prompt", u.get("prompt_tokens"));
+        countTokens("completion", u.get("completion_tokens"));
+    }
+
+    private void countTokens(String type, Object value) {
+        if (value instanceof Number n) {
+            registry.counter("llm.tokens", "type", type).increment(n.doubleValue());
+        }
+    }
+
+    private String extractDelta(String data) {
+        try {
+            JsonNode root = MAPPER.readTree(data);
+            JsonNode usage = root.path("usage");
+            if (usage.isObject()) {
+                countTokens("prompt", usage.path("prompt_tokens").numberValue());
+                countTokens("completion", usage.path("completion_tokens").numberValue());
+            }
+            JsonNode content = root.path("choices").path(0).path("delta").path("content");
+            return content.isTextual() ? content.asText() : null;
+        } catch (JsonProcessingException e) {
+            log.debug("skipping unparseable stream chunk: {}", e.getMessage());
+            return null;
+        }
+    }
 
+    private String extractContent(Map<String, Object> response) {
         Object choicesObj = response.get("choices");
         if (!(choicesObj instanceof Iterable<?> choices)) return null;
         for (Object choiceObj : choices) {
@@ -0,0 +1,8 @@
+package com.agnostik.bot_runner.llm;
+
+public class LlmUnavailableException extends RuntimeException {
+
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+}
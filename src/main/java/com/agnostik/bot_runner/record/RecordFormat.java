@@ -0,0 +1,145 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Layout of a record log. A segment starts with {@link #MAGIC}, followed by records of the
+ * form {@code type:u8 at:i64 length:i32 body}; a zero type marks the end of the segment.
+ * Short action and call names are stored as a one-byte index into {@link #TOKENS}.
+ */
+final class RecordFormat {
+
+    static final int MAGIC = 0x42524C31; // "BRL1"
+    static final int RECORD_HEADER = 1 + 8 + 4;
+
+    static final byte END = 0;
+    static final byte SNAPSHOT = 1;
+    static final byte DECIDE = 2;
+    static final byte ACT = 3;
+    static final byte CALL = 4;
+
+    private static final String[] TOKENS = {
+            "none", "left", "right", "lock", "unlock", "accept", "reject", "",
+            "moveLeft", "moveRight", "sendRequest"
+    };
+    private static final int LITERAL = 0xFF;
+    private static final long NULL_LONG = Long.MIN_VALUE;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private RecordFormat() {}
+
+    static void writeSnapshot(Scratch out, SnapshotDTO s) {
+        int present = (s.getMe() != null ? 1 : 0) | (s.getLeft() != null ? 2 : 0)
+                | (s.getRight() != null ? 4 : 0) | (s.getCorridor() != null ? 8 : 0);
+        out.write(present);
+        if (s.getMe() != null) {
+            SnapshotDTO.UserView me = s.getMe();
+            out.writeLong(me.getId() != null ? me.getId() : NULL_LONG);
+            out.writeString(me.getText());
+            out.write(me.isLocked() ? 1 : 0);
+            out.writeInt(me.getMyIndex() != null ? me.getMyIndex() : NULL_INT);
+        }
+        if (s.getLeft() != null) writeNeighbor(out, s.getLeft());
+        if (s.getRight() != null) writeNeighbor(out, s.getRight());
+        if (s.getCorridor() != null) out.writeInt(s.getCorridor().getSize() != null ? s.getCorridor().getSize() : NULL_INT);
+    }
+
+    private static void writeNeighbor(Scratch out, SnapshotDTO.NeighborView n) {
+        out.writeLong(n.getId() != null ? n.getId() : NULL_LONG);
+        out.writeString(n.getText());
+        out.write((n.isLocked() ? 1 : 0) | (n.isFriend() ? 2 : 0) | (n.isRequestToMe() ? 4 : 0) | (n.isRequestFromMe() ? 8 : 0));
+    }
+
+    static SnapshotDTO readSnapshot(ByteBuffer in) {
+        int present = in.get();
+        SnapshotDTO.UserView me = null;
+        if ((present & 1) != 0) {
+            Long id = nullable(in.getLong());
+            String text = readString(in);
+            boolean locked = in.get() != 0;
+            int index = in.getInt();
+            me = new SnapshotDTO.UserView(id, text, locked, index != NULL_INT ? index : null);
+        }
+        SnapshotDTO.NeighborView left = (present & 2) != 0 ? readNeighbor(in) : null;
+        SnapshotDTO.NeighborView right = (present & 4) != 0 ? readNeighbor(in) : null;
+        SnapshotDTO.CorridorInfo corridor = null;
+        if ((present & 8) != 0) {
+            int size = in.getInt();
+            corridor = new SnapshotDTO.CorridorInfo(size != NULL_INT ? size : null);
+        }
+        return new SnapshotDTO(me, left, right, corridor);
+    }
+
+    private static SnapshotDTO.NeighborView readNeighbor(ByteBuffer in) {
+        Long id = nullable(in.getLong());
+        String text = readString(in);
+        int flags = in.get();
+        return new SnapshotDTO.NeighborView(id, text, (flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0, (flags & 8) != 0);
+    }
+
+    static void writeToken(Scratch out, String token) {
+        for (int i = 0; i < TOKENS.length; i++) {
+            if (TOKENS[i].equals(token)) {
+                out.write(i);
+                return;
+            }
+        }
+        out.write(LITERAL);
+        out.writeString(token);
+    }
+
+    static String readToken(ByteBuffer in) {
+        int code = in.get() & 0xFF;
+        return code == LITERAL ? readString(in) : TOKENS[code];
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Long nullable(long value) {
+        return value != NULL_LONG ? value : null;
+    }
+
+    /** Reusable record body buffer; exposes its array so the body is copied once, into the segment. */
+    static final class Scratch extends ByteArrayOutputStream {
+
+        Scratch() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        void writeInt(int v) {
+            write(v >>> 24);
+            write(v >>> 16);
+            write(v >>> 8);
+            write(v);
+        }
+
+        void writeLong(long v) {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeInt(-1);
+                return;
+            }
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only log of one bot, written into memory-mapped segment files of a fixed size.
+ * When a record does not fit, the segment is closed with an end marker and the next one is
+ * mapped, so writes never block on the file system beyond that rotation. Appends are
+ * synchronized; a bot's snapshot and action paths write from different threads.
+ */
+@Slf4j
+public final class RecordLog implements Closeable {
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final RecordFormat.Scratch scratch = new RecordFormat.Scratch();
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private boolean closed;
+
+    RecordLog(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(4096, segmentBytes);
+        Files.createDirectories(dir);
+        this.segmentIndex = RecordReader.segments(dir).size();
+        rotate();
+    }
+
+    public synchronized void snapshot(long at, SnapshotDTO snapshot) {
+        scratch.reset();
+        RecordFormat.writeSnapshot(scratch, snapshot);
+        append(RecordFormat.SNAPSHOT, at);
+    }
+
+    public synchronized void decide(long at) {
+        scratch.reset();
+        append(RecordFormat.DECIDE, at);
+    }
+
+    public synchronized void act(long at, String move, String lock, String text, String request) {
+        scratch.reset();
+        RecordFormat.writeToken(scratch, move);
+        RecordFormat.writeToken(scratch, lock);
+        scratch.writeString(text);
+        RecordFormat.writeToken(scratch, request);
+        append(RecordFormat.ACT, at);
+    }
+
+    public synchronized void call(long at, String name, boolean ok) {
+        scratch.reset();
+        RecordFormat.writeToken(scratch, name);
+        scratch.write(ok ? 1 : 0);
+        append(RecordFormat.CALL, at);
+    }
+
+    private void append(byte type, long at) {
+        if (closed) return;
+        int length = scratch.size();
+        int needed = RecordFormat.RECORD_HEADER + length;
+        if (needed + 1 > segmentBytes - Integer.BYTES) {
+            log.warn("dropping {}-byte record for {}: larger than a segment", needed, dir.getFileName());
+            return;
+        }
+        try {
+            // keep one byte for the end marker
+            if (segment.remaining() < needed + 1) rotate();
+        } catch (IOException e) {
+            closed = true;
+            throw new UncheckedIOException("record log rotation failed in " + dir, e);
+        }
+        segment.put(type).putLong(at).putInt(length).put(scratch.array(), 0, length);
+    }
+
+    private void rotate() throws IOException {
+        if (segment != null) {
+            segment.put(RecordFormat.END);
+            segment.force();
+        }
+        Path file = dir.resolve(RecordReader.segmentName(segmentIndex++));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        segment.putInt(RecordFormat.MAGIC);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        if (segment.hasRemaining()) segment.put(RecordFormat.END);
+        segment.force();
+    }
+}
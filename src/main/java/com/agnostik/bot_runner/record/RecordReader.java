@@ -0,0 +1,115 @@
+package com.agnostik.bot_runner.record;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+/**
+ * Reads one bot's record log back, segment by segment in write order. Segments are mapped
+ * read-only, and a segment cut short by a crash ends at its first zeroed byte. Closing drops
+ * the current mapping, so the JDK can unmap it, and ends the iteration.
+ */
+public final class RecordReader implements Iterator<Recorded>, AutoCloseable {
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".log";
+
+    private final Iterator<Path> files;
+    private ByteBuffer segment;
+    private Recorded next;
+    private boolean closed;
+
+    public RecordReader(Path dir) throws IOException {
+        this.files = segments(dir).iterator();
+    }
+
+    static String segmentName(int index) {
+        return String.format("%s%06d%s", PREFIX, index, SUFFIX);
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> list = Files.list(dir)) {
+            return list.filter(p -> {
+                String name = p.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().toList();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) return false;
+        if (next == null) next = advance();
+        return next != null;
+    }
+
+    @Override
+    public Recorded next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Recorded current = next;
+        next = null;
+        return current;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        segment = null;
+        next = null;
+    }
+
+    private Recorded advance() {
+        while (true) {
+            if (segment == null || segment.remaining() < RecordFormat.RECORD_HEADER) {
+                if (!openNext()) return null;
+                continue;
+            }
+            byte type = segment.get();
+            if (type == RecordFormat.END) {
+                segment = null;
+                continue;
+            }
+            long at = segment.getLong();
+            int length = segment.getInt();
+            ByteBuffer body = segment.slice(segment.position(), length);
+            segment.position(segment.position() + length);
+            Recorded decoded = decode(type, at, body);
+            if (decoded != null) return decoded;
+        }
+    }
+
+    private static Recorded decode(byte type, long at, ByteBuffer body) {
+        return switch (type) {
+            case RecordFormat.SNAPSHOT -> new Recorded.Snapshot(at, RecordFormat.readSnapshot(body));
+            case RecordFormat.DECIDE -> new Recorded.Decide(at);
+            case RecordFormat.ACT -> new Recorded.Act(at, RecordFormat.readToken(body), RecordFormat.readToken(body),
+                    RecordFormat.readString(body), RecordFormat.readToken(body));
+            case RecordFormat.CALL -> new Recorded.Call(at, RecordFormat.readToken(body), body.get() != 0);
+            // unknown types from a newer writer are skipped by length
+            default -> null;
+        };
+    }
+
+    private boolean openNext() {
+        if (!files.hasNext()) return false;
+        Path file = files.next();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map " + file, e);
+        }
+        if (segment.remaining() < Integer.BYTES || segment.getInt() != RecordFormat.MAGIC) {
+            throw new IllegalStateException(file + " is not a record segment");
+        }
+        return true;
+    }
+}
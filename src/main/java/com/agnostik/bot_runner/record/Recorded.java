@@ -0,0 +1,20 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+
+/** One entry of a bot's record log, stamped with wall-clock millis. */
+public sealed interface Recorded {
+
+    long at();
+
+    record Snapshot(long at, SnapshotDTO snapshot) implements Recorded {}
+
+    /** A decision pass started; rule bots are re-run from these during replay. */
+    record Decide(long at) implements Recorded {}
+
+    /** The action handed to applyAction, whatever produced it. */
+    record Act(long at, String move, String lock, String text, String request) implements Recorded {}
+
+    /** One backend call an action turned into, and whether it succeeded. */
+    record Call(long at, String name, boolean ok) implements Recorded {}
+}
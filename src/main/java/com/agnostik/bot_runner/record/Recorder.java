@@ -0,0 +1,80 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one {@link RecordLog} per bot under {@code app.record.dir/<username>} while
+ * recording is on. Sessions get {@code null} otherwise and skip recording entirely. A log is
+ * counted per session that opened it, so a bot restarted while its old session is still
+ * draining shares the log and keeps recording after the old session closes.
+ */
+@Component
+@Slf4j
+public class Recorder {
+
+    private final AppProperties.Record cfg;
+    private final Map<String, Shared> logs = new ConcurrentHashMap<>();
+
+    public Recorder(AppProperties props) {
+        this.cfg = props.getRecord();
+    }
+
+    public boolean isRecording() {
+        return cfg.isEnabled() && !cfg.isReplay();
+    }
+
+    public RecordLog open(String username) {
+        if (!isRecording()) return null;
+        Shared shared = logs.compute(username, (name, current) -> {
+            if (current != null) {
+                current.sessions++;
+                return current;
+            }
+            try {
+                return new Shared(new RecordLog(botDir(name), cfg.getSegmentBytes()));
+            } catch (IOException e) {
+                log.warn("recording disabled for {}: {}", name, e.getMessage());
+                return null;
+            }
+        });
+        return shared != null ? shared.log : null;
+    }
+
+    /** Called once per successful {@link #open}; the log closes with its last session. */
+    public void close(String username) {
+        logs.computeIfPresent(username, (name, shared) -> {
+            if (--shared.sessions > 0) return shared;
+            shared.log.close();
+            return null;
+        });
+    }
+
+    public Path botDir(String username) {
+        return Path.of(cfg.getDir(), username);
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        logs.values().forEach(shared -> shared.log.close());
+        logs.clear();
+    }
+
+    // only touched inside the map's compute functions
+    private static final class Shared {
+
+        private final RecordLog log;
+        private int sessions = 1;
+
+        private Shared(RecordLog log) {
+            this.log = log;
+        }
+    }
+}
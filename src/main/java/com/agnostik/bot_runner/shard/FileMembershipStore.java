@@ -0,0 +1,83 @@
+package com.agnostik.bot_runner.shard;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Membership as a JSON map of member id to last heartbeat, updated under an exclusive file
+ * lock. Enough for several JVMs on one host or on a shared volume with working locks.
+ */
+@Component
+@Slf4j
+public class FileMembershipStore implements MembershipStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path path;
+
+    public FileMembershipStore(AppProperties props) {
+        this.path = Path.of(props.getShard().getMembershipPath());
+    }
+
+    @Override
+    public Set<String> heartbeat(String memberId, long ttlMs) throws IOException {
+        long now = System.currentTimeMillis();
+        return update(members -> {
+            members.put(memberId, now);
+            members.values().removeIf(seen -> seen == null || now - seen > ttlMs);
+        }).keySet();
+    }
+
+    @Override
+    public void leave(String memberId) throws IOException {
+        update(members -> members.remove(memberId));
+    }
+
+    // the channel lock is per process; synchronizing keeps two threads of this JVM out of each other's way
+    private synchronized Map<String, Long> update(Consumer<Map<String, Long>> change) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+             FileLock ignored = channel.lock()) {
+            Map<String, Long> members = read(channel);
+            change.accept(members);
+            byte[] out = MAPPER.writeValueAsBytes(members);
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.wrap(out);
+            long position = 0;
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            channel.force(false);
+            return members;
+        }
+    }
+
+    private Map<String, Long> read(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) return new HashMap<>();
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) break;
+        }
+        try {
+            return MAPPER.readValue(buffer.array(), new TypeReference<HashMap<String, Long>>() {});
+        } catch (IOException e) {
+            log.warn("membership file {} unreadable, starting over: {}", path, e.getMessage());
+            return new HashMap<>();
+        }
+    }
+}
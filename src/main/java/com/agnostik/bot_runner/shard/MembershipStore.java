@@ -0,0 +1,20 @@
+package com.agnostik.bot_runner.shard;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Where runner instances announce themselves in ring mode. The default is a shared file;
+ * anything all instances can reach with an atomic read-modify-write will do.
+ */
+public interface MembershipStore {
+
+    /**
+     * Records that the member is alive and drops members not seen within {@code ttlMs}.
+     *
+     * @return every live member, including this one
+     */
+    Set<String> heartbeat(String memberId, long ttlMs) throws IOException;
+
+    void leave(String memberId) throws IOException;
+}
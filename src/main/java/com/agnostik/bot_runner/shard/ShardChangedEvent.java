@@ -0,0 +1,6 @@
+package com.agnostik.bot_runner.shard;
+
+import java.util.Set;
+
+/** Published when the set of live runner instances changes, so owned bots can be rebalanced. */
+public record ShardChangedEvent(Set<String> members) {}
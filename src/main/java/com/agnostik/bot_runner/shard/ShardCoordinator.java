@@ -0,0 +1,88 @@
+package com.agnostik.bot_runner.shard;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * Decides which bots this runner instance owns. In ring mode it heartbeats into the
+ * {@link MembershipStore} and rebuilds the ring whenever the live member set changes,
+ * publishing a {@link ShardChangedEvent}. Each instance applies the change on its own next
+ * heartbeat, so for one heartbeat a moving bot may briefly run on both instances.
+ */
+@Component
+@Slf4j
+public class ShardCoordinator {
+
+    private final AppProperties.Shard cfg;
+    private final MembershipStore store;
+    private final ApplicationEventPublisher events;
+    @Getter
+    private final String memberId;
+    private volatile HashRing ring;
+
+    public ShardCoordinator(AppProperties props, MembershipStore store, ApplicationEventPublisher events) {
+        this.cfg = props.getShard();
+        this.store = store;
+        this.events = events;
+        this.memberId = cfg.getMemberId() != null && !cfg.getMemberId().isBlank()
+                ? cfg.getMemberId()
+                : ManagementFactory.getRuntimeMXBean().getName();
+        this.ring = new HashRing(Set.of(memberId), cfg.getVirtualNodes());
+        if (cfg.getMode() == AppProperties.Shard.Mode.STATIC && (cfg.getCount() < 1 || cfg.getIndex() < 0 || cfg.getIndex() >= cfg.getCount())) {
+            throw new IllegalStateException("shard index " + cfg.getIndex() + " is outside 0.." + (cfg.getCount() - 1));
+        }
+    }
+
+    @PostConstruct
+    public void join() {
+        if (cfg.getMode() == AppProperties.Shard.Mode.RING) refresh(false);
+    }
+
+    public boolean owns(String username) {
+        return switch (cfg.getMode()) {
+            case NONE -> true;
+            case STATIC -> Math.floorMod(HashRing.hash(username), cfg.getCount()) == cfg.getIndex();
+            case RING -> memberId.equals(ring.ownerOf(username));
+        };
+    }
+
+    @Scheduled(fixedDelayString = "${app.shard.heartbeat-ms:5000}")
+    public void heartbeat() {
+        if (cfg.getMode() == AppProperties.Shard.Mode.RING) refresh(true);
+    }
+
+    private void refresh(boolean publish) {
+        Set<String> live;
+        try {
+            live = store.heartbeat(memberId, cfg.getMemberTtlMs());
+        } catch (IOException e) {
+            // keep the current ring; a flapping store should not shuffle bots around
+            log.warn("membership heartbeat failed for {}: {}", memberId, e.getMessage());
+            return;
+        }
+        if (live.equals(ring.members())) return;
+        ring = new HashRing(live, cfg.getVirtualNodes());
+        log.info("shard ring for {} now has {} member(s): {}", memberId, live.size(), live);
+        if (publish) events.publishEvent(new ShardChangedEvent(ring.members()));
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (cfg.getMode() != AppProperties.Shard.Mode.RING) return;
+        try {
+            store.leave(memberId);
+        } catch (IOException e) {
+            log.warn("could not leave membership for {}: {}", memberId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.agnostik.bot_runner.ws;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frames waiting to go out on one connection. The queue is bounded and drops its oldest
+ * frame on overflow. A replaceable frame pushes out any unsent frame for the same
+ * destination, because a newer typing prefix makes the older one pointless, so a queue of
+ * text frames never holds more than one; the capacity only bounds non-replaceable frames.
+ * At most one drain runs per queue, so a slow socket holds back only its own connection.
+ */
+final class OutboundQueue {
+
+    record Frame(String destination, Object payload, boolean replaceable) {}
+
+    enum Offer { QUEUED, SUPERSEDED, OVERFLOW }
+
+    private final ArrayDeque<Frame> frames = new ArrayDeque<>();
+    private final int capacity;
+    private boolean draining;
+
+    OutboundQueue(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    synchronized Offer offer(Frame frame) {
+        Offer outcome = Offer.QUEUED;
+        if (frame.replaceable() && frames.removeIf(f -> f.replaceable() && f.destination().equals(frame.destination()))) {
+            outcome = Offer.SUPERSEDED;
+        } else if (frames.size() >= capacity) {
+            frames.pollFirst();
+            outcome = Offer.OVERFLOW;
+        }
+        frames.addLast(frame);
+        return outcome;
+    }
+
+    /** @return true if the caller should start a drain; false while one is already running */
+    synchronized boolean claimDrain() {
+        if (draining || frames.isEmpty()) return false;
+        draining = true;
+        return true;
+    }
+
+    synchronized List<Frame> poll(int max) {
+        List<Frame> batch = new ArrayList<>(Math.min(max, frames.size()));
+        while (batch.size() < max && !frames.isEmpty()) batch.add(frames.pollFirst());
+        return batch;
+    }
+
+    /** Ends the running drain unless more frames arrived while it was sending. */
+    synchronized boolean continueDraining() {
+        if (frames.isEmpty()) draining = false;
+        return draining;
+    }
+
+    synchronized int clear() {
+        int dropped = frames.size();
+        frames.clear();
+        return dropped;
+    }
+}
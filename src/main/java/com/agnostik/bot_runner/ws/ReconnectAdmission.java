@@ -0,0 +1,70 @@
+package com.agnostik.bot_runner.ws;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Fleet-wide reconnect budget, so a backend restart does not turn into a thundering herd of
+ * handshakes. Reconnects are spaced to a rate, at most a fixed number of handshakes are in
+ * flight at once, and each attempt waits a fully jittered exponential backoff first.
+ */
+final class ReconnectAdmission {
+
+    private final int maxConcurrent;
+    private final long intervalNanos;
+    private final LongSupplier clock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong nextSlot;
+
+    /**
+     * @param maxConcurrent handshakes allowed in flight; zero or less means no limit
+     * @param perSecond     reconnects started per second; zero or less means no spacing
+     */
+    ReconnectAdmission(int maxConcurrent, double perSecond, LongSupplier clock) {
+        this.maxConcurrent = maxConcurrent;
+        this.intervalNanos = perSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / perSecond) : 0;
+        this.clock = clock;
+        this.nextSlot = new AtomicLong(clock.getAsLong());
+    }
+
+    // full jitter: uniform over [0, min(max, base * 2^attempt)]
+    static long backoffMs(long baseMs, long maxMs, int attempt, Random random) {
+        int shift = Math.min(Math.max(0, attempt), 62);
+        long cap = Math.max(0, maxMs);
+        long ceiling = baseMs <= (cap >> shift) ? Math.max(0, baseMs) << shift : cap;
+        return random.nextLong(ceiling + 1);
+    }
+
+    /** Reserves the next free start slot and returns how long to wait for it. */
+    long delayMs() {
+        if (intervalNanos == 0) return 0;
+        while (true) {
+            long now = clock.getAsLong();
+            long last = nextSlot.get();
+            long slot = Math.max(now, last);
+            if (nextSlot.compareAndSet(last, slot + intervalNanos)) {
+                return TimeUnit.NANOSECONDS.toMillis(slot - now);
+            }
+        }
+    }
+
+    /** @return false when the handshake limit is reached; a true result must be paired with {@link #release} */
+    boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (maxConcurrent > 0 && current >= maxConcurrent) return false;
+            if (inFlight.compareAndSet(current, current + 1)) return true;
+        }
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
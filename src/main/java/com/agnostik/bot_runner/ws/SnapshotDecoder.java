@@ -0,0 +1,138 @@
+package com.agnostik.bot_runner.ws;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Streaming decoder for snapshot frames. It reads only the fields the bots use from one
+ * shared {@link JsonFactory}. Parts of the frame that match the previous snapshot reuse
+ * the previous objects, and neighbor text is compared in the parser's buffer before a new
+ * String is built. Repeated frames therefore allocate little beyond the parser itself.
+ */
+public final class SnapshotDecoder {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    public SnapshotDTO decode(byte[] frame, SnapshotDTO previous) throws IOException {
+        try (JsonParser p = JSON.createParser(frame)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("snapshot frame is not a JSON object");
+            SnapshotDTO.UserView me = previous != null ? previous.getMe() : null;
+            SnapshotDTO.NeighborView left = previous != null ? previous.getLeft() : null;
+            SnapshotDTO.NeighborView right = previous != null ? previous.getRight() : null;
+            SnapshotDTO.CorridorInfo corridor = previous != null ? previous.getCorridor() : null;
+            SnapshotDTO.UserView meOut = null;
+            SnapshotDTO.NeighborView leftOut = null;
+            SnapshotDTO.NeighborView rightOut = null;
+            SnapshotDTO.CorridorInfo corridorOut = null;
+
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if (value == JsonToken.VALUE_NULL) continue;
+                switch (field) {
+                    case "me" -> meOut = user(p, me);
+                    case "left" -> leftOut = neighbor(p, left);
+                    case "right" -> rightOut = neighbor(p, right);
+                    case "corridor" -> corridorOut = corridor(p, corridor);
+                    default -> p.skipChildren();
+                }
+            }
+            if (previous != null && meOut == me && leftOut == left && rightOut == right && corridorOut == corridor) {
+                return previous;
+            }
+            return new SnapshotDTO(meOut, leftOut, rightOut, corridorOut);
+        }
+    }
+
+    private static SnapshotDTO.UserView user(JsonParser p, SnapshotDTO.UserView prev) throws IOException {
+        Long id = null;
+        String text = null;
+        boolean locked = false;
+        Integer myIndex = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "id" -> id = longOrNull(p, value, prev != null ? prev.getId() : null);
+                case "text" -> text = text(p, value, prev != null ? prev.getText() : null);
+                case "locked" -> locked = value == JsonToken.VALUE_TRUE;
+                case "myIndex" -> myIndex = value == JsonToken.VALUE_NUMBER_INT ? p.getIntValue() : null;
+                default -> p.skipChildren();
+            }
+        }
+        if (prev != null && Objects.equals(prev.getId(), id) && prev.getText() == text
+                && prev.isLocked() == locked && Objects.equals(prev.getMyIndex(), myIndex)) {
+            return prev;
+        }
+        return new SnapshotDTO.UserView(id, text, locked, myIndex);
+    }
+
+    private static SnapshotDTO.NeighborView neighbor(JsonParser p, SnapshotDTO.NeighborView prev) throws IOException {
+        Long id = null;
+        String text = null;
+        boolean locked = false;
+        boolean friend = false;
+        boolean requestToMe = false;
+        boolean requestFromMe = false;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "id" -> id = longOrNull(p, value, prev != null ? prev.getId() : null);
+                case "text" -> text = text(p, value, prev != null ? prev.getText() : null);
+                case "locked" -> locked = value == JsonToken.VALUE_TRUE;
+                case "friend" -> friend = value == JsonToken.VALUE_TRUE;
+                case "requestToMe" -> requestToMe = value == JsonToken.VALUE_TRUE;
+                case "requestFromMe" -> requestFromMe = value == JsonToken.VALUE_TRUE;
+                default -> p.skipChildren();
+            }
+        }
+        if (prev != null && Objects.equals(prev.getId(), id) && prev.getText() == text && prev.isLocked() == locked
+                && prev.isFriend() == friend && prev.isRequestToMe() == requestToMe && prev.isRequestFromMe() == requestFromMe) {
+            return prev;
+        }
+        return new SnapshotDTO.NeighborView(id, text, locked, friend, requestToMe, requestFromMe);
+    }
+
+    private static SnapshotDTO.CorridorInfo corridor(JsonParser p, SnapshotDTO.CorridorInfo prev) throws IOException {
+        Integer size = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if ("size".equals(field) && value == JsonToken.VALUE_NUMBER_INT) size = p.getIntValue();
+            else p.skipChildren();
+        }
+        return prev != null && Objects.equals(prev.getSize(), size) ? prev : new SnapshotDTO.CorridorInfo(size);
+    }
+
+    // keeps the previous boxed value when the number is unchanged
+    private static Long longOrNull(JsonParser p, JsonToken value, Long prev) throws IOException {
+        if (value != JsonToken.VALUE_NUMBER_INT) return null;
+        long v = p.getLongValue();
+        return prev != null && prev == v ? prev : Long.valueOf(v);
+    }
+
+    // compares against the previous string in the parser's own buffer, so unchanged text is not copied
+    private static String text(JsonParser p, JsonToken value, String prev) throws IOException {
+        if (value != JsonToken.VALUE_STRING) return null;
+        if (prev != null) {
+            char[] chars = p.getTextCharacters();
+            int offset = p.getTextOffset();
+            int length = p.getTextLength();
+            if (length == prev.length() && regionEquals(chars, offset, prev)) return prev;
+        }
+        return p.getText();
+    }
+
+    private static boolean regionEquals(char[] chars, int offset, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (chars[offset + i] != s.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -3,63 +3,268 @@ package com.agnostik.bot_runner.ws;
 import com.agnostik.bot_runner.config.AppProperties;
 import com.agnostik.bot_runner.dto.SnapshotDTO;
 import com.agnostik.bot_runner.dto.TextUpdateDTO;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
 import org.springframework.messaging.converter.MappingJackson2MessageConverter;
 import org.springframework.messaging.simp.stomp.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.socket.WebSocketHttpHeaders;
 import org.springframework.web.socket.client.standard.StandardWebSocketClient;
 import org.springframework.web.socket.messaging.WebSocketStompClient;
-import org.springframework.web.socket.sockjs.client.SockJsClient;
-import org.springframework.web.socket.sockjs.client.Transport;
-import org.springframework.web.socket.sockjs.client.WebSocketTransport;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class StompClientService {
 
     private final AppProperties props;
+    private final ThreadPoolTaskScheduler taskScheduler;
+    private final WebSocketStompClient client;
+    // bots only send text, and each text replaces the unsent one, so a connection holds at most one
+    // frame; the bound is only there for non-replaceable frames
+    private static final int OUTBOUND_CAPACITY = 16;
 
-    private WebSocketStompClient stompClient() {
-        WebSocketStompClient client = new WebSocketStompClient(new StandardWebSocketClient());
-        client.setMessageConverter(new MappingJackson2MessageConverter());
-        return client;
+    private final ReconnectAdmission reconnects;
+    private final Counter framesSent;
+    private final Counter bytesSent;
+    private final Counter framesReceived;
+    private final Counter framesDuplicate;
+    private final Counter droppedSuperseded;
+    private final Counter droppedOverflow;
+    private final Counter droppedDisconnected;
+    private final Counter droppedFailed;
+    private final DistributionSummary flushBatch;
+    private final AtomicInteger outboundDepth = new AtomicInteger();
+    private final ExecutorService sender;
+    private final SnapshotDecoder decoder = new SnapshotDecoder();
+
+    public StompClientService(AppProperties props, MeterRegistry registry) {
+        this.props = props;
+        this.framesSent = Counter.builder("stomp.frames.sent").register(registry);
+        this.bytesSent = Counter.builder("stomp.bytes.sent")
+                .description("UTF-8 size of the text carried by sent frames")
+                .baseUnit("bytes")
+                .register(registry);
+        this.framesReceived = Counter.builder("stomp.frames.received").register(registry);
+        this.framesDuplicate = Counter.builder("stomp.frames.duplicate")
+                .description("Snapshot frames identical to the previous one on the same connection")
+                .register(registry);
+        this.droppedSuperseded = dropped(registry, "superseded");
+        this.droppedOverflow = dropped(registry, "overflow");
+        this.droppedDisconnected = dropped(registry, "disconnected");
+        this.droppedFailed = dropped(registry, "error");
+        this.flushBatch = DistributionSummary.builder("stomp.outbound.batch")
+                .description("Frames sent per outbound flush")
+                .register(registry);
+        registry.gauge("stomp.outbound.depth", outboundDepth);
+        AppProperties.Ws cfg = props.getWs();
+        this.reconnects = new ReconnectAdmission(cfg.getReconnectConcurrency(), cfg.getReconnectsPerSecond(), System::nanoTime);
+        registry.gauge("stomp.reconnects.in.flight", reconnects, ReconnectAdmission::inFlight);
+
+        AtomicInteger senderIndex = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(Math.max(1, cfg.getSenderThreads()), r -> {
+            Thread t = new Thread(r, "stomp-out-" + senderIndex.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        });
+
+        this.taskScheduler = new ThreadPoolTaskScheduler();
+        this.taskScheduler.setPoolSize(Math.max(1, cfg.getSchedulerThreads()));
+        this.taskScheduler.setThreadNamePrefix("stomp-");
+        this.taskScheduler.setDaemon(true);
+        this.taskScheduler.setRemoveOnCancelPolicy(true);
+        this.taskScheduler.initialize();
+
+        this.client = new WebSocketStompClient(new StandardWebSocketClient());
+        // snapshots arrive as raw bytes for SnapshotDecoder; outgoing DTOs still go through Jackson
+        this.client.setMessageConverter(new CompositeMessageConverter(List.of(new RawJsonConverter(), new MappingJackson2MessageConverter())));
+        this.client.setTaskScheduler(taskScheduler);
+        this.client.setDefaultHeartbeat(new long[]{cfg.getHeartbeatMs(), cfg.getHeartbeatMs()});
     }
 
-    public StompSession connect(String jwt, Consumer<SnapshotDTO> snapshotHandler) {
+    private static Counter dropped(MeterRegistry registry, String reason) {
+        return Counter.builder("stomp.frames.dropped").tag("reason", reason).register(registry);
+    }
+
+    /**
+     * @param frameReceived runs for every snapshot frame, duplicates included, before any is skipped
+     */
+    public StompConnection open(String name, Supplier<String> jwt, Consumer<SnapshotDTO> snapshotHandler, Runnable frameReceived) {
+        return new StompConnection(this, name, jwt, snapshotHandler, frameReceived,
+                new OutboundQueue(OUTBOUND_CAPACITY));
+    }
+
+    CompletableFuture<StompSession> connectAsync(String jwt, StompSessionHandler handler) {
         WebSocketHttpHeaders handshake = new WebSocketHttpHeaders();
         StompHeaders connectHeaders = new StompHeaders();
         connectHeaders.add("Authorization", "Bearer " + jwt);
+        return client.connectAsync(props.getWsEndpoint(), handshake, connectHeaders, handler);
+    }
 
-        WebSocketStompClient client = stompClient();
-        return client.connectAsync(
-                props.getWsEndpoint(),
-                handshake,
-                connectHeaders,
-                new StompSessionHandlerAdapter() {
-                    @Override
-                    public void afterConnected(StompSession session, StompHeaders connectedHeaders) {
-                        session.subscribe("/user/queue/snapshot", new StompFrameHandler() {
-                            @Override
-                            public Type getPayloadType(StompHeaders headers) {
-                                return SnapshotDTO.class;
-                            }
-
-                            @Override
-                            public void handleFrame(StompHeaders headers, Object payload) {
-                                snapshotHandler.accept((SnapshotDTO) payload);
-                            }
-                        });
-                    }
+    void subscribeSnapshots(StompSession session, Consumer<SnapshotDTO> snapshotHandler, Runnable frameReceived) {
+        session.subscribe("/user/queue/snapshot", new StompFrameHandler() {
+            // frames of one subscription are delivered one at a time
+            private byte[] lastRaw;
+            private SnapshotDTO lastDecoded;
+
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return byte[].class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                framesReceived.increment();
+                frameReceived.run();
+                byte[] raw = (byte[]) payload;
+                if (lastDecoded != null && Arrays.equals(raw, lastRaw)) {
+                    framesDuplicate.increment();
+                    return;
+                }
+                SnapshotDTO snapshot;
+                try {
+                    snapshot = decoder.decode(raw, lastDecoded);
+                } catch (IOException e) {
+                    log.warn("dropping unreadable snapshot frame ({} bytes): {}", raw.length, e.getMessage());
+                    return;
                 }
-        ).join();
+                lastRaw = raw;
+                lastDecoded = snapshot;
+                snapshotHandler.accept(snapshot);
+            }
+        });
+    }
+
+    void scheduleReconnect(Runnable task, int attempt) {
+        AppProperties.Ws cfg = props.getWs();
+        long backoffMs = ReconnectAdmission.backoffMs(cfg.getReconnectBaseMs(), cfg.getReconnectMaxMs(), attempt,
+                ThreadLocalRandom.current());
+        long delayMs = backoffMs + reconnects.delayMs();
+        taskScheduler.schedule(task, Instant.now().plus(Duration.ofMillis(delayMs)));
+    }
+
+    /** @return false while the fleet-wide handshake limit is reached; otherwise pair with {@link #reconnectFinished} */
+    boolean tryAdmitReconnect() {
+        return reconnects.tryAcquire();
+    }
+
+    void reconnectFinished() {
+        reconnects.release();
+    }
+
+    int reconnectsInFlight() {
+        return reconnects.inFlight();
+    }
+
+    // typing threads only enqueue; the actual socket writes happen on the sender pool, one
+    // drain per connection at a time
+    void enqueueText(OutboundQueue queue, Supplier<StompSession> session, String text) {
+        switch (queue.offer(new OutboundQueue.Frame("/app/text", new TextUpdateDTO(text), true))) {
+            case QUEUED -> outboundDepth.incrementAndGet();
+            case SUPERSEDED -> droppedSuperseded.increment();
+            case OVERFLOW -> droppedOverflow.increment();
+        }
+        if (queue.claimDrain()) sender.execute(() -> drain(queue, session));
+    }
+
+    // a text typed while the link is down is stale by the time it comes back
+    void dropDisconnected() {
+        droppedDisconnected.increment();
+    }
+
+    void discard(OutboundQueue queue) {
+        int dropped = queue.clear();
+        outboundDepth.addAndGet(-dropped);
+        droppedDisconnected.increment(dropped);
+    }
+
+    private void drain(OutboundQueue queue, Supplier<StompSession> session) {
+        List<OutboundQueue.Frame> batch = queue.poll(Math.max(1, props.getWs().getOutboundBatchSize()));
+        outboundDepth.addAndGet(-batch.size());
+        StompSession current = session.get();
+        int sent = 0;
+        for (OutboundQueue.Frame frame : batch) {
+            if (current == null || !current.isConnected()) {
+                droppedDisconnected.increment();
+                continue;
+            }
+            try {
+                current.send(frame.destination(), frame.payload());
+                sent++;
+                framesSent.increment();
+                if (frame.payload() instanceof TextUpdateDTO update) bytesSent.increment(utf8Length(update.getText()));
+            } catch (RuntimeException e) {
+                droppedFailed.increment();
+                log.debug("outbound frame to {} failed: {}", frame.destination(), e.getMessage());
+            }
+        }
+        if (sent > 0) flushBatch.record(sent);
+        // yield the thread between batches so one busy connection cannot hog the pool
+        if (queue.continueDraining()) sender.execute(() -> drain(queue, session));
+    }
+
+    private static int utf8Length(String s) {
+        if (s == null) return 0;
+        int bytes = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) bytes += 1;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c)) { bytes += 4; i++; }
+            else bytes += 3;
+        }
+        return bytes;
+    }
+
+    /** Hands JSON payloads over untouched when the subscriber asks for {@code byte[]}. */
+    private static final class RawJsonConverter extends AbstractMessageConverter {
+
+        RawJsonConverter() {
+            super(MimeTypeUtils.APPLICATION_JSON);
+        }
+
+        @Override
+        protected boolean supports(Class<?> clazz) {
+            return byte[].class == clazz;
+        }
+
+        @Override
+        protected boolean canConvertTo(Object payload, MessageHeaders headers) {
+            return false;
+        }
+
+        @Override
+        protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+            return message.getPayload() instanceof byte[] bytes ? bytes : null;
+        }
     }
 
-    public void sendText(StompSession session, String text) {
-        session.send("/app/text", new TextUpdateDTO(text));
+    @PreDestroy
+    public void shutdown() {
+        client.stop();
+        sender.shutdownNow();
+        taskScheduler.shutdown();
     }
 }
@@ -0,0 +1,137 @@
+package com.agnostik.bot_runner.ws;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * One bot's STOMP link. Once the first connect succeeds, a lost connection is re-established
+ * with jittered exponential backoff and the snapshot subscription is restored. Each attempt
+ * holds one of the service's fleet-wide reconnect slots until its handshake settles.
+ */
+@Slf4j
+public class StompConnection {
+
+    private final StompClientService service;
+    private final String name;
+    private final Supplier<String> jwt;
+    private final Consumer<SnapshotDTO> snapshotHandler;
+    private final Runnable frameReceived;
+    private final OutboundQueue outbound;
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile StompSession session;
+    private volatile boolean established;
+    private volatile boolean reconnecting;
+    private volatile boolean closed;
+
+    StompConnection(StompClientService service, String name, Supplier<String> jwt, Consumer<SnapshotDTO> snapshotHandler,
+                    Runnable frameReceived, OutboundQueue outbound) {
+        this.service = service;
+        this.name = name;
+        this.jwt = jwt;
+        this.snapshotHandler = snapshotHandler;
+        this.frameReceived = frameReceived;
+        this.outbound = outbound;
+    }
+
+    public CompletableFuture<StompSession> connect() {
+        return service.connectAsync(jwt.get(), new Handler())
+                .whenComplete((s, e) -> {
+                    if (e == null) {
+                        session = s;
+                        established = true;
+                        attempts.set(0);
+                    }
+                });
+    }
+
+    public StompSession session() {
+        return session;
+    }
+
+    public boolean isConnected() {
+        StompSession current = session;
+        return current != null && current.isConnected();
+    }
+
+    /**
+     * Queues the text; an unsent earlier text on this connection is replaced rather than sent.
+     * While disconnected the text is dropped and counted, not held for the reconnect.
+     */
+    public void sendText(String text) {
+        if (closed || !isConnected()) {
+            service.dropDisconnected();
+            return;
+        }
+        service.enqueueText(outbound, this::session, text);
+    }
+
+    public void close() {
+        closed = true;
+        service.discard(outbound);
+        StompSession current = session;
+        if (current != null && current.isConnected()) current.disconnect();
+    }
+
+    private void reconnectLater() {
+        if (closed || !established || reconnecting) return;
+        reconnecting = true;
+        int attempt = attempts.getAndIncrement();
+        service.scheduleReconnect(this::reconnect, attempt);
+    }
+
+    private void reconnect() {
+        if (closed) return;
+        if (!service.tryAdmitReconnect()) {
+            // too many handshakes in flight across the fleet; wait another, longer backoff
+            reconnecting = false;
+            reconnectLater();
+            return;
+        }
+        int tries = attempts.get();
+        CompletableFuture<StompSession> attempt;
+        try {
+            attempt = connect();
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((s, e) -> {
+            service.reconnectFinished();
+            reconnecting = false;
+            if (e != null) {
+                log.debug("reconnect failed for {}: {}", name, e.getMessage());
+                reconnectLater();
+            } else {
+                log.info("reconnected {} after {} attempt(s)", name, tries);
+            }
+        });
+    }
+
+    private final class Handler extends StompSessionHandlerAdapter {
+
+        @Override
+        public void afterConnected(StompSession s, StompHeaders connectedHeaders) {
+            service.subscribeSnapshots(s, snapshotHandler, frameReceived);
+        }
+
+        @Override
+        public void handleException(StompSession s, StompCommand command, StompHeaders headers, byte[] payload, Throwable exception) {
+            log.debug("stomp error for {}: {}", name, exception.getMessage());
+        }
+
+        @Override
+        public void handleTransportError(StompSession s, Throwable exception) {
+            if (s.isConnected() || s != session) return;
+            log.info("connection lost for {}: {}", name, exception.getMessage());
+            reconnectLater();
+        }
+    }
+}
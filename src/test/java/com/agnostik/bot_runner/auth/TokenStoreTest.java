@@ -0,0 +1,89 @@
+package com.agnostik.bot_runner.auth;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void expiryComesFromTheJwtExpClaim() {
+        TokenStore store = store(300_000);
+        long exp = System.currentTimeMillis() / 1000 + 3600;
+
+        assertEquals(exp * 1000, store.put("bot1", jwt(exp)).expiresAt());
+    }
+
+    @Test
+    void unparseableTokenFallsBackToTheDefaultTtl() {
+        TokenStore store = store(300_000);
+        long before = System.currentTimeMillis();
+
+        long expiresAt = store.put("bot1", "not-a-jwt").expiresAt();
+
+        assertTrue(expiresAt >= before + 3_600_000 && expiresAt <= System.currentTimeMillis() + 3_600_000);
+    }
+
+    @Test
+    void tokenInsideTheRefreshMarginIsNotUsable() {
+        TokenStore store = store(300_000);
+        long now = System.currentTimeMillis() / 1000;
+        store.put("fresh", jwt(now + 600));
+        store.put("expiring", jwt(now + 200));
+
+        assertTrue(store.usable("fresh").isPresent());
+        assertTrue(store.usable("expiring").isEmpty());
+        assertTrue(store.usable("unknown").isEmpty());
+    }
+
+    @Test
+    void flushedTokensLoadBackAndExpiredOnesAreDropped() {
+        TokenStore store = store(0);
+        long now = System.currentTimeMillis() / 1000;
+        String live = jwt(now + 3600);
+        store.put("live", live);
+        store.put("expired", jwt(now - 10));
+        store.flush();
+
+        TokenStore reloaded = store(0);
+        reloaded.load();
+
+        assertEquals(live, reloaded.usable("live").orElseThrow().token());
+        assertTrue(reloaded.usable("expired").isEmpty());
+    }
+
+    @Test
+    void cacheFileIsOwnerOnly() throws Exception {
+        if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) return;
+        TokenStore store = store(0);
+        store.put("bot1", jwt(System.currentTimeMillis() / 1000 + 3600));
+        store.flush();
+
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(dir.resolve("tokens.json"))));
+    }
+
+    private TokenStore store(long refreshBeforeMs) {
+        AppProperties props = new AppProperties();
+        props.getTokenCache().setPath(dir.resolve("tokens.json").toString());
+        props.getTokenCache().setRefreshBeforeMs(refreshBeforeMs);
+        return new TokenStore(props);
+    }
+
+    private static String jwt(long exp) {
+        Base64.Encoder enc = Base64.getUrlEncoder().withoutPadding();
+        return enc.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8)) + "."
+                + enc.encodeToString(("{\"sub\":\"bot\",\"exp\":" + exp + "}").getBytes(StandardCharsets.UTF_8)) + ".sig";
+    }
+}
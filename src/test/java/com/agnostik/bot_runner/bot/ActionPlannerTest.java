@@ -0,0 +1,50 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActionPlannerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ActionPlanner planner = new ActionPlanner(new BotMetrics(registry));
+
+    @Test
+    void dropsLockWhenAlreadyLocked() {
+        planner.observe(me(true));
+
+        assertFalse(planner.claim(true));
+        assertTrue(planner.claim(false));
+        assertEquals(1.0, registry.counter("bot.actions.suppressed", "action", "lock").count());
+    }
+
+    @Test
+    void inFlightCallCountsAsTheNewStateUntilConfirmedOrFailed() {
+        planner.observe(me(false));
+
+        assertTrue(planner.claim(true));
+        assertFalse(planner.claim(true));
+
+        planner.failed(true);
+        assertTrue(planner.claim(true));
+
+        planner.observe(me(true));
+        assertFalse(planner.claim(true));
+    }
+
+    @Test
+    void everyClaimSupersedesEarlierGenerations() {
+        long before = planner.generation();
+        planner.claim(true);
+        planner.claim(true);
+        assertEquals(before + 2, planner.generation());
+    }
+
+    private static SnapshotDTO.UserView me(boolean locked) {
+        return new SnapshotDTO.UserView(1L, "", locked, 0);
+    }
+}
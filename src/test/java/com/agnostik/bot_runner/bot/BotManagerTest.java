@@ -0,0 +1,71 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotManagerTest {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Test
+    void launchRunsAtMostConcurrencyStartsAtOnce() {
+        AppProperties.Startup cfg = startup(3, 0);
+
+        BotManager.staggered(Flux.range(0, 12), cfg, i -> slowStart()).blockLast(Duration.ofSeconds(5));
+
+        assertEquals(3, maxInFlight.get());
+        assertEquals(0, inFlight.get());
+    }
+
+    @Test
+    void launchSpacesStartsToTheConnectRate() {
+        AppProperties.Startup cfg = startup(10, 50);
+
+        long begin = System.nanoTime();
+        long count = BotManager.staggered(Flux.range(0, 5), cfg, i -> Mono.<Void>empty())
+                .count()
+                .block(Duration.ofSeconds(5));
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - begin).toMillis();
+
+        assertEquals(0, count);
+        // five starts 20 ms apart
+        assertTrue(elapsedMs >= 80, "finished after " + elapsedMs + " ms");
+    }
+
+    @Test
+    void failedStartsAreCountedWithoutEndingTheLaunch() {
+        StartupReport report = new StartupReport();
+        AppProperties.Startup cfg = startup(2, 0);
+
+        BotManager.staggered(Flux.range(0, 6), cfg, i -> report.track("bot" + i, i % 3 == 0
+                        ? Mono.error(new IllegalStateException("login refused"))
+                        : slowStart().thenReturn(true)))
+                .blockLast(Duration.ofSeconds(5));
+
+        assertEquals(4, report.startedCount());
+        assertEquals(2, report.failedCount());
+        assertTrue(maxInFlight.get() <= 2);
+    }
+
+    private Mono<Void> slowStart() {
+        return Mono.defer(() -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return Mono.delay(Duration.ofMillis(20)).then();
+        }).doFinally(signal -> inFlight.decrementAndGet());
+    }
+
+    private static AppProperties.Startup startup(int concurrency, double connectsPerSecond) {
+        AppProperties.Startup cfg = new AppProperties.Startup();
+        cfg.setConcurrency(concurrency);
+        cfg.setConnectsPerSecond(connectsPerSecond);
+        return cfg;
+    }
+}
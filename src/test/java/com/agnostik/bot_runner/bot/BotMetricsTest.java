@@ -0,0 +1,52 @@
+package com.agnostik.bot_runner.bot;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final BotMetrics metrics = new BotMetrics(registry);
+
+    @Test
+    void restartOverlappingADrainKeepsTheMeterExported() {
+        Counter draining = metrics.snapshots("bot1");
+        Counter restarted = metrics.snapshots("bot1");
+        assertSame(draining, restarted);
+
+        // the old session finishes its drain after the new one has connected
+        metrics.forget("bot1");
+        restarted.increment();
+
+        Counter exported = registry.find("bot.snapshots").tag("bot", "bot1").counter();
+        assertNotNull(exported);
+        assertEquals(1, exported.count());
+
+        metrics.forget("bot1");
+        assertNull(registry.find("bot.snapshots").tag("bot", "bot1").counter());
+    }
+
+    @Test
+    void forgettingAnUnknownBotLeavesOthersAlone() {
+        metrics.snapshots("bot1");
+
+        metrics.forget("bot2");
+
+        assertNotNull(registry.find("bot.snapshots").tag("bot", "bot1").counter());
+    }
+
+    @Test
+    void meterIsRegisteredAfreshAfterItsLastSessionLeft() {
+        Counter first = metrics.snapshots("bot1");
+        first.increment();
+        metrics.forget("bot1");
+
+        Counter second = metrics.snapshots("bot1");
+
+        assertEquals(0, second.count());
+        assertSame(second, registry.find("bot.snapshots").tag("bot", "bot1").counter());
+    }
+}
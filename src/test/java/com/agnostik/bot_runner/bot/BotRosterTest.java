@@ -0,0 +1,133 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotRosterTest {
+
+    @Test
+    void explicitBotsComeFirstThenTheGeneratedFleet() {
+        AppProperties props = props(Map.of("llm", 1.0));
+        props.setBots(List.of(explicit("alice")));
+
+        BotRoster roster = new BotRoster(props);
+
+        assertEquals(6, roster.size());
+        assertEquals(List.of("alice", "bot1", "bot2", "bot3", "bot4", "bot5"),
+                roster.credentials().map(AppProperties.BotCredential::getUsername).toList());
+        assertEquals("bot3-3", roster.find("bot3").orElseThrow().getPassword());
+    }
+
+    @Test
+    void generationIsDeterministicPerName() {
+        AppProperties props = props(Map.of("llm", 1.0, "fixed", 1.0));
+        props.getFleet().setCount(200);
+        List<Boolean> first = new BotRoster(props).credentials().map(AppProperties.BotCredential::getUseLlm).toList();
+
+        // resizing the fleet must not reshuffle the bots that were already there
+        props.getFleet().setCount(400);
+        List<Boolean> second = new BotRoster(props).credentials().limit(200).map(AppProperties.BotCredential::getUseLlm).toList();
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    void textPoolIsInternedAndSharedAcrossBots() {
+        AppProperties props = props(Map.of("fixed", 1.0));
+        props.getFleet().setTextPool(List.of(new String("howdy"), new String("yeehaw")));
+
+        BotRoster roster = new BotRoster(props);
+
+        assertSame("yeehaw", roster.find("bot1").orElseThrow().getFixedText());
+        assertSame(roster.find("bot1").orElseThrow().getFixedText(), roster.find("bot3").orElseThrow().getFixedText());
+        assertEquals("howdy", roster.find("bot2").orElseThrow().getFixedText());
+    }
+
+    @Test
+    void behaviorMixSetsTheLlmShareAndRuleBehaviors() {
+        AppProperties props = props(Map.of("llm", 1.0, "cycle", 3.0));
+        props.getRules().getBehaviors().put("cycle", new AppProperties.RuleBehavior());
+        props.getFleet().setCount(2000);
+
+        List<AppProperties.BotCredential> bots = new BotRoster(props).credentials().toList();
+
+        long llm = bots.stream().filter(AppProperties.BotCredential::getUseLlm).count();
+        assertTrue(llm > 400 && llm < 600, "llm share off: " + llm);
+        assertTrue(bots.stream().filter(b -> !b.getUseLlm()).allMatch(b -> "cycle".equals(b.getBehavior())));
+    }
+
+    @Test
+    void unknownBehaviorInTheMixIsRejected() {
+        AppProperties props = props(Map.of("llm", 1.0, "chaotic", 1.0));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new BotRoster(props));
+        assertTrue(e.getMessage().contains("chaotic"));
+    }
+
+    @Test
+    void explicitBotWithUndeclaredBehaviorIsRejected() {
+        AppProperties props = props(Map.of("llm", 1.0));
+        AppProperties.BotCredential typo = explicit("alice");
+        typo.setBehavior("cylce");
+        AppProperties.BotCredential builtIn = explicit("bob");
+        builtIn.setBehavior("random");
+
+        props.setBots(List.of(builtIn));
+        BotRoster roster = new BotRoster(props);
+        props.setBots(List.of(builtIn, typo));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new BotRoster(props));
+        assertTrue(e.getMessage().contains("cylce"));
+        assertThrows(IllegalStateException.class, () -> roster.replace(List.of(typo), props.getFleet()));
+        assertTrue(roster.find("bob").isPresent());
+    }
+
+    @Test
+    void findOnlyMatchesNamesInsideTheFleetRange() {
+        BotRoster roster = new BotRoster(props(Map.of("llm", 1.0)));
+
+        assertTrue(roster.find("bot1").isPresent());
+        assertTrue(roster.find("bot5").isPresent());
+        assertTrue(roster.find("bot0").isEmpty());
+        assertTrue(roster.find("bot6").isEmpty());
+        assertTrue(roster.find("bot03").isEmpty());
+        assertTrue(roster.find("botx").isEmpty());
+        assertTrue(roster.find("other1").isEmpty());
+    }
+
+    @Test
+    void replaceSwapsTheWholeRoster() {
+        BotRoster roster = new BotRoster(props(Map.of("llm", 1.0)));
+        AppProperties.Fleet smaller = new AppProperties.Fleet();
+        smaller.setPrefix("bot");
+        smaller.setCount(2);
+
+        roster.replace(List.of(explicit("carol")), smaller);
+
+        assertEquals(3, roster.size());
+        assertTrue(roster.find("carol").isPresent());
+        assertTrue(roster.find("bot3").isEmpty());
+    }
+
+    private static AppProperties props(Map<String, Double> mix) {
+        AppProperties props = new AppProperties();
+        AppProperties.Fleet fleet = props.getFleet();
+        fleet.setPrefix("bot");
+        fleet.setCount(5);
+        fleet.setPasswordTemplate("{name}-{index}");
+        fleet.getBehaviorMix().putAll(mix);
+        return props;
+    }
+
+    private static AppProperties.BotCredential explicit(String username) {
+        AppProperties.BotCredential cred = new AppProperties.BotCredential();
+        cred.setUsername(username);
+        cred.setPassword("secret");
+        return cred;
+    }
+}
@@ -0,0 +1,220 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.record.Recorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotSchedulerTest {
+
+    private static final long PERIOD_MS = 1000;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AppProperties props = new AppProperties();
+    private final AtomicLong clock = new AtomicLong();
+    private final ManualExecutor shard = new ManualExecutor();
+    private final List<String> decisions = new ArrayList<>();
+    private final BotTimer timer;
+    private final BotRuntime runtime;
+    private final BotScheduler scheduler;
+
+    BotSchedulerTest() {
+        props.getScheduler().setPeriodMs(PERIOD_MS);
+        props.getScheduler().setJitterMs(0);
+        props.getScheduler().setParallelism(1);
+        timer = new BotTimer(props);
+        runtime = new BotRuntime(props, null, null, null, new LlmProperties(), timer, null, null, null, null, null,
+                new BotMetrics(registry), new Recorder(props));
+        scheduler = new BotScheduler(props, registry, clock::get, index -> shard);
+    }
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+        timer.shutdown();
+    }
+
+    @Test
+    void firesOncePerPeriodAfterARandomPhase() {
+        scheduler.register(bot());
+
+        advance(PERIOD_MS);
+        assertEquals(List.of("tick"), decisions);
+
+        advance(PERIOD_MS);
+        assertEquals(List.of("tick", "tick"), decisions);
+    }
+
+    @Test
+    void missedSlotsAreSkippedRatherThanFiredBackToBack() {
+        scheduler.register(bot());
+
+        advance(10 * PERIOD_MS);
+
+        assertEquals(List.of("tick"), decisions);
+        double skipped = registry.counter("bot.scheduler.skipped.slots").count();
+        assertTrue(skipped >= 9 && skipped <= 10, "skipped " + skipped);
+
+        // back on the regular cadence from here
+        advance(PERIOD_MS);
+        assertEquals(List.of("tick", "tick"), decisions);
+    }
+
+    @Test
+    void repeatedTriggersCollapseIntoOneRun() {
+        BotSession bot = bot();
+        scheduler.register(bot);
+
+        scheduler.trigger(bot, 100);
+        scheduler.trigger(bot, 100);
+        scheduler.trigger(bot, 50);
+        advance(100);
+
+        assertEquals(1, decisions.stream().filter("trigger"::equals).count());
+        assertEquals(1, registry.counter("bot.scheduler.triggers").count());
+    }
+
+    @Test
+    void earlyTriggerReArmsAndKeepsTheRegularSlot() {
+        BotSession bot = bot();
+        scheduler.register(bot);
+
+        scheduler.trigger(bot, 0);
+        advance(0);
+        // the pending flag is cleared once the trigger runs, so the next one is not folded away
+        scheduler.trigger(bot, 0);
+        advance(0);
+        assertEquals(List.of("trigger", "trigger"), decisions);
+
+        // the regular slot was neither moved nor dropped by the triggers
+        advance(PERIOD_MS);
+        assertEquals(List.of("trigger", "trigger", "tick"), decisions);
+        assertEquals(2, registry.counter("bot.scheduler.triggers").count());
+    }
+
+    @Test
+    void unregisterCancelsTheSlot() {
+        BotSession bot = bot();
+        scheduler.register(bot);
+        scheduler.trigger(bot, 100);
+
+        scheduler.unregister(bot);
+        scheduler.trigger(bot, 0);
+        advance(5 * PERIOD_MS);
+
+        assertEquals(List.of(), decisions);
+        assertEquals(0, scheduler.size());
+    }
+
+    // records whether each decision came from the regular cadence or a trigger
+    private BotSession bot() {
+        AppProperties.BotCredential cred = new AppProperties.BotCredential();
+        cred.setUsername("bot1");
+        return new BotSession(cred, runtime) {
+            @Override
+            public Mono<Void> decideAndActAsync(boolean triggered) {
+                decisions.add(triggered ? "trigger" : "tick");
+                return Mono.empty();
+            }
+        };
+    }
+
+    private void advance(long ms) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(ms));
+        shard.runDue();
+    }
+
+    // runs scheduled work only when the test advances the clock
+    private final class ManualExecutor extends ScheduledThreadPoolExecutor {
+
+        private final List<Task> tasks = new ArrayList<>();
+
+        private ManualExecutor() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task task = new Task(command, clock.get() + unit.toNanos(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        private void runDue() {
+            while (true) {
+                Task next = tasks.stream()
+                        .filter(t -> !t.cancelled && t.dueNanos <= clock.get())
+                        .min(Comparator.comparingLong(t -> t.dueNanos))
+                        .orElse(null);
+                if (next == null) return;
+                tasks.remove(next);
+                next.done = true;
+                next.command.run();
+            }
+        }
+    }
+
+    private final class Task implements ScheduledFuture<Object> {
+
+        private final Runnable command;
+        private final long dueNanos;
+        private boolean cancelled;
+        private boolean done;
+
+        private Task(Runnable command, long dueNanos) {
+            this.command = command;
+            this.dueNanos = dueNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - clock.get(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) return false;
+            cancelled = true;
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public boolean isDone() {
+            return done || cancelled;
+        }
+
+        @Override
+        public Object get() {
+            return null;
+        }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) {
+            return null;
+        }
+    }
+}
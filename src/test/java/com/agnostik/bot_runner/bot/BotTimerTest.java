@@ -0,0 +1,81 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BotTimerTest {
+
+    private final BotTimer timer = new BotTimer(new AppProperties());
+
+    @AfterEach
+    void shutdown() {
+        timer.shutdown();
+    }
+
+    @Test
+    void closeCancelsPendingTasksAndRefusesNewOnes() throws InterruptedException {
+        BotTimer.Handle handle = timer.newHandle();
+        AtomicInteger ran = new AtomicInteger();
+        handle.schedule(ran::incrementAndGet, 50);
+        handle.schedule(ran::incrementAndGet, 50);
+        assertEquals(2, handle.pendingTasks());
+
+        handle.close();
+        handle.schedule(ran::incrementAndGet, 0);
+
+        assertEquals(0, handle.pendingTasks());
+        // cancelled futures leave the shared queue at once
+        assertEquals(0, timer.pendingTasks());
+        Thread.sleep(150);
+        assertEquals(0, ran.get());
+    }
+
+    @Test
+    void oneSessionsCancellationLeavesOthersAlone() throws InterruptedException {
+        BotTimer.Handle closed = timer.newHandle();
+        BotTimer.Handle other = timer.newHandle();
+        AtomicInteger closedRan = new AtomicInteger();
+        CountDownLatch otherRan = new CountDownLatch(1);
+        closed.schedule(closedRan::incrementAndGet, 50);
+        other.schedule(otherRan::countDown, 50);
+
+        closed.close();
+
+        assertTrue(otherRan.await(1, TimeUnit.SECONDS));
+        assertEquals(0, closedRan.get());
+        assertEquals(0, other.pendingTasks());
+    }
+
+    @Test
+    void cancelAllKeepsTheHandleUsable() throws InterruptedException {
+        BotTimer.Handle handle = timer.newHandle();
+        AtomicInteger cancelled = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+        handle.schedule(cancelled::incrementAndGet, 50);
+
+        handle.cancelAll();
+        handle.schedule(later::countDown, 10);
+
+        assertTrue(later.await(1, TimeUnit.SECONDS));
+        assertEquals(0, cancelled.get());
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheTimer() throws InterruptedException {
+        BotTimer.Handle handle = timer.newHandle();
+        CountDownLatch after = new CountDownLatch(1);
+        handle.schedule(() -> {
+            throw new IllegalStateException("boom");
+        }, 0);
+        handle.schedule(after::countDown, 20);
+
+        assertTrue(after.await(1, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,106 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecisionCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LlmProperties props = new LlmProperties();
+
+    DecisionCacheTest() {
+        props.getCache().setEnabled(true);
+        props.getCache().setRefreshProbability(0);
+    }
+
+    @Test
+    void sameSituationSharesAKeyAcrossIdsAndWhitespace() {
+        DecisionCache cache = new DecisionCache(props, registry);
+
+        DecisionCache.Key a = cache.keyOf(snapshot(new SnapshotDTO.NeighborView(1L, "  Howdy   Partner ", false, true, false, false)));
+        DecisionCache.Key b = cache.keyOf(snapshot(new SnapshotDTO.NeighborView(7L, "howdy partner", false, true, false, false)));
+        DecisionCache.Key c = cache.keyOf(snapshot(new SnapshotDTO.NeighborView(1L, "howdy partner", true, true, false, false)));
+
+        assertEquals(a, b);
+        assertNotEquals(a.state(), c.state());
+    }
+
+    @Test
+    void hashCollisionWithDifferentStateIsAMiss() {
+        DecisionCache cache = new DecisionCache(props, registry);
+        cache.store(new DecisionCache.Key(42, "U-1~"), action("hello"));
+
+        assertNull(cache.lookup(new DecisionCache.Key(42, "L-1~"), ""));
+        assertEquals(action("hello"), cache.lookup(new DecisionCache.Key(42, "U-1~"), ""));
+    }
+
+    @Test
+    void expiredEntryIsAMiss() {
+        props.getCache().setTtlMs(0);
+        DecisionCache cache = new DecisionCache(props, registry);
+        DecisionCache.Key key = cache.keyOf(snapshot(null));
+        cache.store(key, action("hello"));
+
+        assertNull(cache.lookup(key, ""));
+        assertEquals(1.0, registry.counter("bot.decision.cache", "result", "miss").count());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        props.getCache().setMaxEntries(2);
+        DecisionCache cache = new DecisionCache(props, registry);
+        DecisionCache.Key k1 = new DecisionCache.Key(1, "1");
+        DecisionCache.Key k2 = new DecisionCache.Key(2, "2");
+        DecisionCache.Key k3 = new DecisionCache.Key(3, "3");
+        cache.store(k1, action("one"));
+        cache.store(k2, action("two"));
+        cache.lookup(k1, "");
+        cache.store(k3, action("three"));
+
+        assertNotNull(cache.lookup(k1, ""));
+        assertNull(cache.lookup(k2, ""));
+        assertNotNull(cache.lookup(k3, ""));
+        assertEquals(1.0, registry.counter("bot.decision.cache.evictions").count());
+    }
+
+    @Test
+    void neverHandsBackTheTextJustTypedAndCapsVariants() {
+        props.getCache().setMaxVariants(2);
+        DecisionCache cache = new DecisionCache(props, registry);
+        DecisionCache.Key key = new DecisionCache.Key(1, "1");
+        cache.store(key, action("one"));
+
+        assertNull(cache.lookup(key, "one"));
+
+        cache.store(key, action("two"));
+        cache.store(key, action("two"));
+        cache.store(key, action("three"));
+        for (int i = 0; i < 20; i++) {
+            Action hit = cache.lookup(key, "three");
+            assertEquals(action("two"), hit);
+        }
+    }
+
+    @Test
+    void unfilledVariantPoolRefreshesWhenTheDrawSaysSo() {
+        props.getCache().setRefreshProbability(1);
+        DecisionCache cache = new DecisionCache(props, registry);
+        DecisionCache.Key key = new DecisionCache.Key(1, "1");
+        cache.store(key, action("one"));
+
+        assertNull(cache.lookup(key, ""));
+        assertEquals(1.0, registry.counter("bot.decision.cache", "result", "refresh").count());
+    }
+
+    private static SnapshotDTO snapshot(SnapshotDTO.NeighborView left) {
+        return new SnapshotDTO(new SnapshotDTO.UserView(1L, "", false, 0), left, null, new SnapshotDTO.CorridorInfo(3));
+    }
+
+    private static Action action(String text) {
+        return new Action("none", "none", text, "none");
+    }
+}
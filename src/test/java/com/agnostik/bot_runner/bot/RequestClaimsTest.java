@@ -0,0 +1,71 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static com.agnostik.bot_runner.bot.SnapshotDiffTest.neighbor;
+import static com.agnostik.bot_runner.bot.SnapshotDiffTest.snapshot;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestClaimsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final RequestClaims claims = new RequestClaims(new BotMetrics(registry));
+
+    @Test
+    void requestIsAnsweredOnceWhileItStaysOnScreen() {
+        SnapshotDTO.NeighborView requester = neighbor(2L, null, false, false, true);
+
+        assertTrue(claims.claim("left", requester));
+        assertFalse(claims.claim("left", requester));
+        assertFalse(claims.claim("left", neighbor(2L, null, false, false, false)));
+        assertEquals(1.0, registry.counter("bot.requests.suppressed").count());
+    }
+
+    @Test
+    void withdrawnRequestCanBeAnsweredAgain() {
+        SnapshotDTO pending = snapshot(neighbor(2L, null, false, false, true), null);
+        SnapshotDTO none = snapshot(neighbor(2L, null, false, false, false), null);
+        claims.claim("left", pending.getLeft());
+
+        claims.observe(SnapshotDiff.between(pending, none));
+
+        assertTrue(claims.claim("left", pending.getLeft()));
+    }
+
+    @Test
+    void departingOrReplacedNeighborReleasesItsClaim() {
+        SnapshotDTO.NeighborView left = neighbor(2L, null, false, false, true);
+        SnapshotDTO.NeighborView right = neighbor(3L, null, false, false, true);
+        SnapshotDTO before = snapshot(left, right);
+        claims.claim("left", left);
+        claims.claim("right", right);
+
+        claims.observe(SnapshotDiff.between(before, snapshot(null, neighbor(4L, null, false, false, false))));
+
+        assertTrue(claims.claim("left", left));
+        assertTrue(claims.claim("right", right));
+    }
+
+    @Test
+    void unrelatedChangesKeepTheClaim() {
+        SnapshotDTO.NeighborView requester = neighbor(2L, "hi", false, false, true);
+        claims.claim("left", requester);
+
+        claims.observe(SnapshotDiff.between(snapshot(requester, null),
+                snapshot(neighbor(2L, "hello", true, false, true), null)));
+
+        assertFalse(claims.claim("left", requester));
+    }
+
+    @Test
+    void releaseAfterFailedCallAllowsRetry() {
+        SnapshotDTO.NeighborView requester = neighbor(2L, null, false, false, true);
+        claims.claim("right", requester);
+
+        claims.release("right", requester);
+
+        assertTrue(claims.claim("right", requester));
+    }
+}
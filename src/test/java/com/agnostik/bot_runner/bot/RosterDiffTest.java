@@ -0,0 +1,100 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties.BotCredential;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RosterDiffTest {
+
+    @Test
+    void newEntriesAreStartedAndMissingOnesDrained() {
+        Map<String, BotCredential> running = byName(cred("alice", true, null), cred("bob", true, null));
+        Map<String, BotCredential> desired = byName(cred("bob", true, null), cred("carol", false, "cycle"));
+
+        RosterDiff.Plan plan = RosterDiff.plan(running, desired, Set.of());
+
+        assertEquals(List.of("carol"), names(plan.start()));
+        assertEquals(List.of("alice"), plan.drain());
+        assertTrue(plan.update().isEmpty());
+        assertEquals(new RosterDiff(1, 1, 0, 1), plan.diff());
+    }
+
+    @Test
+    void changedEntriesAreUpdatedInPlace() {
+        BotCredential password = cred("a", true, null);
+        password.setPassword("rotated");
+        BotCredential text = cred("b", false, null);
+        text.setFixedText("howdy");
+        Map<String, BotCredential> running = byName(cred("a", true, null), cred("b", false, null),
+                cred("c", false, "cycle"), cred("d", true, null));
+        Map<String, BotCredential> desired = byName(password, text, cred("c", false, "random"), cred("d", true, null));
+
+        RosterDiff.Plan plan = RosterDiff.plan(running, desired, Set.of());
+
+        assertEquals(List.of("a", "b", "c"), names(plan.update()));
+        assertSame(password, plan.update().get(0));
+        assertEquals(new RosterDiff(0, 0, 3, 1), plan.diff());
+    }
+
+    @Test
+    void onlySchedulingChangesNeedAReschedule() {
+        BotCredential llm = cred("a", true, null);
+
+        assertFalse(RosterDiff.differs(llm, cred("a", true, null)));
+        assertTrue(RosterDiff.needsReschedule(llm, cred("a", false, null)));
+        assertTrue(RosterDiff.needsReschedule(cred("a", false, "cycle"), cred("a", false, "random")));
+
+        BotCredential rotated = cred("a", true, null);
+        rotated.setPassword("rotated");
+        assertTrue(RosterDiff.differs(llm, rotated));
+        assertFalse(RosterDiff.needsReschedule(llm, rotated));
+    }
+
+    @Test
+    void botsStillStartingOrDrainingAreLeftAlone() {
+        Map<String, BotCredential> desired = byName(cred("a", true, null), cred("b", true, null), cred("c", true, null));
+
+        // "a" is still connecting, "c" was removed and re-added while its old session leaves
+        RosterDiff.Plan plan = RosterDiff.plan(Map.of(), desired, Set.of("a", "c"));
+
+        assertEquals(List.of("b"), names(plan.start()));
+        assertTrue(plan.drain().isEmpty());
+        assertEquals(new RosterDiff(1, 0, 0, 0), plan.diff());
+    }
+
+    @Test
+    void inputsAreNotModified() {
+        Map<String, BotCredential> running = byName(cred("a", true, null));
+        Map<String, BotCredential> desired = byName(cred("a", true, null), cred("b", true, null));
+
+        RosterDiff.plan(running, desired, Set.of());
+
+        assertEquals(1, running.size());
+        assertEquals(2, desired.size());
+    }
+
+    private static BotCredential cred(String username, boolean useLlm, String behavior) {
+        BotCredential cred = new BotCredential();
+        cred.setUsername(username);
+        cred.setPassword("secret");
+        cred.setUseLlm(useLlm);
+        cred.setBehavior(behavior);
+        return cred;
+    }
+
+    private static Map<String, BotCredential> byName(BotCredential... creds) {
+        Map<String, BotCredential> map = new LinkedHashMap<>();
+        for (BotCredential cred : creds) map.put(cred.getUsername(), cred);
+        return map;
+    }
+
+    private static List<String> names(List<BotCredential> creds) {
+        return creds.stream().map(BotCredential::getUsername).toList();
+    }
+}
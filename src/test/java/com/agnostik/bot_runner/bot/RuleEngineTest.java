@@ -0,0 +1,181 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import com.agnostik.bot_runner.config.LlmProperties;
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import com.agnostik.bot_runner.http.HttpClientService;
+import com.agnostik.bot_runner.record.Recorder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleEngineTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AppProperties props = new AppProperties();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private final AppProperties.RuleBehavior random = new AppProperties.RuleBehavior();
+    private final AppProperties.RuleBehavior cycle = new AppProperties.RuleBehavior();
+    private BotTimer timer;
+    private RuleEngine engine;
+    private BotRuntime runtime;
+
+    RuleEngineTest() {
+        props.getRules().setTickMs(10);
+        // turns are driven by hand; the engine's own pass only fires delayed unlocks
+        random.setPeriodMs(3_600_000);
+        random.setMoveChance(1);
+        random.setLockChance(1);
+        random.setRelockMs(50);
+        cycle.setKind(AppProperties.RuleBehavior.Kind.CYCLE);
+        cycle.setPeriodMs(3_600_000);
+        cycle.setLockPhaseMs(0);
+        cycle.setUnlockPhaseMs(3_600_000);
+        cycle.setMoveMinMs(3_600_000);
+        cycle.setMoveJitterMs(0);
+        props.getRules().getBehaviors().put("chatty", random);
+        props.getRules().getBehaviors().put("cycle", cycle);
+    }
+
+    @AfterEach
+    void shutdown() {
+        if (engine != null) engine.shutdown();
+        if (timer != null) timer.shutdown();
+    }
+
+    @Test
+    void randomTurnMovesLocksAndUnlocksLater() throws InterruptedException {
+        start();
+        BotSession bot = bot("a", "chatty", false);
+        engine.register(bot, true);
+
+        engine.act(bot).block();
+        assertEquals(List.of("moveLeft", "lock"), calls);
+
+        // the engine's pass releases the lock once relockMs has passed
+        awaitCall("unlock");
+    }
+
+    @Test
+    void unscheduledBotUnlocksThroughItsOwnTimer() throws InterruptedException {
+        start();
+        BotSession bot = bot("a", "chatty", false);
+        engine.register(bot, false);
+
+        engine.act(bot).block();
+
+        awaitCall("unlock");
+    }
+
+    @Test
+    void cycleUnlocksThenMovesThenWaitsForTheNextMove() {
+        start();
+        BotSession bot = bot("a", "cycle", true);
+        engine.register(bot, true);
+
+        engine.act(bot).block();
+        assertEquals(List.of("unlock"), calls);
+
+        // the unlock is still unconfirmed, so only the move goes out
+        engine.act(bot).block();
+        assertEquals(List.of("unlock", "moveLeft"), calls);
+
+        engine.act(bot).block();
+        assertEquals(List.of("unlock", "moveLeft"), calls);
+    }
+
+    @Test
+    void slotsAreRecycled() {
+        start();
+        BotSession a = bot("a", null, false);
+        BotSession b = bot("b", null, false);
+        BotSession c = bot("c", null, false);
+        engine.register(a, true);
+        engine.register(b, true);
+        assertEquals(0, a.ruleSlot);
+        assertEquals(1, b.ruleSlot);
+
+        engine.unregister(a);
+        engine.unregister(a);
+        assertEquals(-1, a.ruleSlot);
+        engine.register(c, true);
+        assertEquals(0, c.ruleSlot);
+        engine.register(a, true);
+        assertEquals(2, a.ruleSlot);
+    }
+
+    @Test
+    void unknownBehaviorIsRejectedWithoutTakingASlot() {
+        start();
+        BotSession typo = bot("typo", "chaty", false);
+        BotSession next = bot("next", null, false);
+
+        assertThrows(IllegalStateException.class, () -> engine.register(typo, true));
+        assertEquals(-1, typo.ruleSlot);
+        engine.register(next, true);
+        assertEquals(0, next.ruleSlot);
+    }
+
+    @Test
+    void botWithoutASlotGetsAStatelessDefaultTurn() {
+        props.getRules().setDefaultBehavior("chatty");
+        start();
+        BotSession bot = bot("llm", null, false);
+
+        engine.act(bot).block();
+
+        assertEquals(List.of("moveLeft", "lock"), calls);
+    }
+
+    private void start() {
+        LlmProperties llmProps = new LlmProperties();
+        timer = new BotTimer(props);
+        engine = new RuleEngine(props, registry);
+        HttpClientService http = new HttpClientService(null, registry) {
+            @Override
+            public Mono<Void> moveLeftAsync(String jwt) { return call("moveLeft"); }
+
+            @Override
+            public Mono<Void> moveRightAsync(String jwt) { return call("moveRight"); }
+
+            @Override
+            public Mono<Void> lockAsync(String jwt) { return call("lock"); }
+
+            @Override
+            public Mono<Void> unlockAsync(String jwt) { return call("unlock"); }
+        };
+        runtime = new BotRuntime(props, http, null, null, llmProps, timer, null, engine,
+                new TypingPlanner(props), null, new DecisionCache(llmProps, registry), new BotMetrics(registry),
+                new Recorder(props));
+    }
+
+    private Mono<Void> call(String name) {
+        return Mono.fromRunnable(() -> calls.add(name));
+    }
+
+    // a bot with only a left neighbor, as seen in its latest snapshot
+    private BotSession bot(String name, String behavior, boolean locked) {
+        AppProperties.BotCredential cred = new AppProperties.BotCredential();
+        cred.setUsername(name);
+        cred.setUseLlm(false);
+        cred.setBehavior(behavior);
+        BotSession bot = new BotSession(cred, runtime);
+        bot.replaySnapshot(new SnapshotDTO(
+                new SnapshotDTO.UserView(1L, "", locked, 1),
+                new SnapshotDTO.NeighborView(2L, "", false, false, false, false),
+                null,
+                new SnapshotDTO.CorridorInfo(2)));
+        return bot;
+    }
+
+    private void awaitCall(String name) throws InterruptedException {
+        for (int i = 0; i < 200 && !calls.contains(name); i++) Thread.sleep(10);
+        assertTrue(calls.contains(name), "expected " + name + " in " + calls);
+    }
+}
@@ -0,0 +1,87 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotDiffTest {
+
+    @Test
+    void firstSnapshotReportsArrivalsAndPendingRequests() {
+        List<SnapshotDiff.Change> changes = SnapshotDiff.between(null, snapshot(neighbor(2L, "hi", false, false, true), null));
+
+        assertEquals(List.of(SnapshotDiff.Type.NEIGHBOR_ARRIVED, SnapshotDiff.Type.REQUEST_RECEIVED), types(changes));
+        assertEquals("left", changes.get(0).side());
+    }
+
+    @Test
+    void identicalSnapshotsHaveNoChanges() {
+        SnapshotDTO a = snapshot(neighbor(2L, "hi", true, true, false), neighbor(3L, null, false, false, false));
+        SnapshotDTO b = snapshot(neighbor(2L, "hi", true, true, false), neighbor(3L, null, false, false, false));
+
+        assertTrue(SnapshotDiff.between(a, b).isEmpty());
+    }
+
+    @Test
+    void neighborTextChangeIsMeaningful() {
+        List<SnapshotDiff.Change> changes = SnapshotDiff.between(
+                snapshot(null, neighbor(3L, "hel", false, false, false)),
+                snapshot(null, neighbor(3L, "hello", false, false, false)));
+
+        assertEquals(List.of(SnapshotDiff.Type.TEXT_CHANGED), types(changes));
+        assertEquals("right", changes.get(0).side());
+        assertTrue(changes.get(0).isMeaningful());
+    }
+
+    @Test
+    void lockAndFriendshipChangesAreReportedButNotMeaningful() {
+        List<SnapshotDiff.Change> changes = SnapshotDiff.between(
+                snapshot(neighbor(2L, "hi", false, false, false), null),
+                snapshot(neighbor(2L, "hi", true, true, false), null));
+
+        assertEquals(List.of(SnapshotDiff.Type.FRIENDSHIP_CHANGED, SnapshotDiff.Type.LOCK_CHANGED), types(changes));
+        assertTrue(changes.stream().noneMatch(SnapshotDiff.Change::isMeaningful));
+    }
+
+    @Test
+    void requestReceivedAndWithdrawn() {
+        SnapshotDTO none = snapshot(neighbor(2L, null, false, false, false), null);
+        SnapshotDTO pending = snapshot(neighbor(2L, null, false, false, true), null);
+
+        List<SnapshotDiff.Change> received = SnapshotDiff.between(none, pending);
+        List<SnapshotDiff.Change> withdrawn = SnapshotDiff.between(pending, none);
+
+        assertEquals(List.of(SnapshotDiff.Type.REQUEST_RECEIVED), types(received));
+        assertTrue(received.get(0).isMeaningful());
+        assertEquals(List.of(SnapshotDiff.Type.REQUEST_WITHDRAWN), types(withdrawn));
+        assertFalse(withdrawn.get(0).isMeaningful());
+    }
+
+    @Test
+    void neighborLeavingOrBeingReplacedKeepsTheOldView() {
+        SnapshotDTO.NeighborView old = neighbor(2L, "bye", false, false, true);
+        SnapshotDTO before = snapshot(old, old);
+
+        List<SnapshotDiff.Change> changes = SnapshotDiff.between(before, snapshot(null, neighbor(9L, null, false, false, false)));
+
+        assertEquals(List.of(SnapshotDiff.Type.NEIGHBOR_LEFT, SnapshotDiff.Type.NEIGHBOR_REPLACED), types(changes));
+        assertSame(old, changes.get(0).before());
+        assertSame(old, changes.get(1).before());
+        assertEquals(9L, changes.get(1).after().getId());
+    }
+
+    private static List<SnapshotDiff.Type> types(List<SnapshotDiff.Change> changes) {
+        return changes.stream().map(SnapshotDiff.Change::type).toList();
+    }
+
+    static SnapshotDTO snapshot(SnapshotDTO.NeighborView left, SnapshotDTO.NeighborView right) {
+        return new SnapshotDTO(new SnapshotDTO.UserView(1L, "", false, 1), left, right, new SnapshotDTO.CorridorInfo(3));
+    }
+
+    static SnapshotDTO.NeighborView neighbor(Long id, String text, boolean locked, boolean friend, boolean requestToMe) {
+        return new SnapshotDTO.NeighborView(id, text, locked, friend, requestToMe, false);
+    }
+}
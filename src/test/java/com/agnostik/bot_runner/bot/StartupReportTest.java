@@ -0,0 +1,34 @@
+package com.agnostik.bot_runner.bot;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StartupReportTest {
+
+    @Test
+    void startsAreCountedAsStartedSkippedOrFailed() {
+        StartupReport report = new StartupReport();
+
+        report.track("a", Mono.just(true)).block();
+        report.track("b", Mono.just(false)).block();
+        report.track("c", Mono.error(new IllegalStateException("login refused"))).block();
+        report.track("d", Mono.empty()).block();
+
+        assertEquals(1, report.startedCount());
+        assertEquals(1, report.failedCount());
+    }
+
+    @Test
+    void onlySuccessfulPhasesAreTimed() {
+        StartupReport report = new StartupReport();
+
+        report.time("auth", Mono.just("token")).block();
+        report.time("auth", Mono.error(new IllegalStateException("boom"))).onErrorResume(e -> Mono.empty()).block();
+        report.time("connect", Mono.empty()).block();
+
+        assertEquals(1, report.samples("auth"));
+        assertEquals(1, report.samples("connect"));
+    }
+}
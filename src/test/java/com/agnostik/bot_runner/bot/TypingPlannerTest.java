@@ -0,0 +1,68 @@
+package com.agnostik.bot_runner.bot;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TypingPlannerTest {
+
+    private final AppProperties props = new AppProperties();
+    private final TypingPlanner planner = new TypingPlanner(props);
+
+    @Test
+    void longTextStaysWithinFrameAndByteBudget() {
+        String text = "Strawberry fields forever ".repeat(50);
+        TypingPlanner.TypingPlan plan = planner.plan("", text);
+
+        AppProperties.Typing cfg = props.getTyping();
+        double seconds = cfg.getMaxDurationMs() / 1000.0;
+        assertTrue(plan.size() <= cfg.getFramesPerSecond() * seconds);
+        assertTrue(plan.totalBytes() <= cfg.getBytesPerSecond() * seconds);
+        assertEquals(text, plan.frame(plan.size() - 1));
+    }
+
+    @Test
+    void backspaceOnlyErasesToCommonPrefixInFewFrames() {
+        String previous = "Hello people! What's new in this corridor?";
+        String next = "Hello people! Anyone around?";
+        TypingPlanner.TypingPlan plan = planner.plan(previous, next);
+
+        int backspace = 0;
+        while (backspace < plan.size() && previous.startsWith(plan.frame(backspace))
+                && plan.frame(backspace).length() >= "Hello people! ".length()
+                && !next.startsWith(plan.frame(backspace))) {
+            backspace++;
+        }
+        assertTrue(backspace <= props.getTyping().getBackspaceFrames());
+        for (int i = 0; i < plan.size(); i++) {
+            assertTrue(plan.frame(i).length() >= "Hello people! ".length());
+        }
+        assertEquals(next, plan.target());
+        assertEquals(next, plan.frame(plan.size() - 1));
+    }
+
+    @Test
+    void erasingToAPrefixEndsOnItWithoutARepeatedFrame() {
+        String previous = "Here comes the sun, and I say";
+        String next = "Here comes the sun";
+        TypingPlanner.TypingPlan plan = planner.plan(previous, next);
+
+        assertEquals(next, plan.target());
+        assertEquals(next, plan.frame(plan.size() - 1));
+        for (int i = 1; i < plan.size(); i++) {
+            assertNotEquals(plan.frame(i - 1), plan.frame(i));
+        }
+    }
+
+    @Test
+    void typingFramesGrowMonotonically() {
+        String text = "agnostik??!!   AGNOSTIK////        agnostik:::";
+        TypingPlanner.TypingPlan plan = planner.plan("", text);
+        for (int i = 1; i < plan.size(); i++) {
+            assertTrue(plan.frame(i).length() > plan.frame(i - 1).length());
+        }
+    }
+}
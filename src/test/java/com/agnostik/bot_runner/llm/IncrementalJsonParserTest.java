@@ -0,0 +1,51 @@
+package com.agnostik.bot_runner.llm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IncrementalJsonParserTest {
+
+    @Test
+    void reportsFieldsAndTextChunksAcrossArbitrarySplits() {
+        Map<String, String> values = new LinkedHashMap<>();
+        StringBuilder text = new StringBuilder();
+        IncrementalJsonParser parser = new IncrementalJsonParser(new IncrementalJsonParser.Listener() {
+            @Override
+            public void onValueChunk(String field, String chunk) {
+                if ("text".equals(field)) text.append(chunk);
+            }
+
+            @Override
+            public void onValue(String field, String value) {
+                values.put(field, value);
+            }
+        });
+
+        String json = "```json\n{\"move\":\"left\", \"lock\" : \"none\",\"text\":\"Howdy \\\"partner\\\"\\n\\u00e9\",\"request\":null}";
+        for (int i = 0; i < json.length(); i += 3) {
+            parser.feed(json.substring(i, Math.min(json.length(), i + 3)));
+        }
+
+        assertTrue(parser.isDone());
+        assertEquals("left", values.get("move"));
+        assertEquals("none", values.get("lock"));
+        assertEquals("Howdy \"partner\"\né", values.get("text"));
+        assertEquals("", values.get("request"));
+        assertEquals(values.get("text"), text.toString());
+    }
+
+    @Test
+    void skipsNestedValues() {
+        Map<String, String> values = new LinkedHashMap<>();
+        IncrementalJsonParser parser = new IncrementalJsonParser((field, value) -> values.put(field, value));
+
+        parser.feed("{\"meta\":{\"a\":[1,\"}\"]},\"move\":\"right\"}");
+
+        assertEquals(Map.of("move", "right"), values);
+    }
+}
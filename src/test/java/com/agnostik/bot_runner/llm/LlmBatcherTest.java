@@ -0,0 +1,172 @@
+package com.agnostik.bot_runner.llm;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmBatcherTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger combinedCalls = new AtomicInteger();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private LlmBatcher batcher;
+
+    @AfterEach
+    void shutdown() {
+        if (batcher != null) batcher.shutdown();
+    }
+
+    @Test
+    void splitsWellFormedArrayIntoOneAnswerPerBot() {
+        List<String> answers = LlmBatcher.split("Here you go:\n[{\"move\":\"left\"}, {\"move\":\"none\",\"text\":\"hi\"}]\n", 2);
+
+        assertEquals(List.of("{\"move\":\"left\"}", "{\"move\":\"none\",\"text\":\"hi\"}"), answers);
+    }
+
+    @Test
+    void rejectsShortOrMalformedArrays() {
+        assertThrows(IllegalArgumentException.class, () -> LlmBatcher.split("[{\"move\":\"left\"}]", 2));
+        assertThrows(IllegalArgumentException.class, () -> LlmBatcher.split("{\"move\":\"left\"}", 1));
+        assertThrows(IllegalArgumentException.class, () -> LlmBatcher.split("[{\"move\":}, {]", 2));
+    }
+
+    @Test
+    void combinedBatchAnswersEachBotFromItsArrayElement() {
+        batcher = combinedBatcher(prompt -> "[{\"text\":\"one\"},{\"text\":\"two\"}]");
+
+        List<String> answers = submitTwo();
+
+        assertEquals(List.of("{\"text\":\"one\"}", "{\"text\":\"two\"}"), answers);
+        assertEquals(1, combinedCalls.get());
+        assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void shortCombinedAnswerFallsBackToSingleCalls() {
+        batcher = combinedBatcher(prompt -> prompt.contains("independent bots")
+                ? "[{\"text\":\"only one\"}]"
+                : "{\"text\":\"" + prompt.substring(prompt.indexOf("state ")) + "\"}");
+
+        List<String> answers = submitTwo();
+
+        assertEquals(List.of("{\"text\":\"state a\"}", "{\"text\":\"state b\"}"), answers);
+        assertEquals(1, combinedCalls.get());
+        assertEquals(2, singleCalls.get());
+    }
+
+    @Test
+    void fallbackSingleCallsKeepTheInFlightBound() {
+        LlmProperties props = new LlmProperties();
+        props.getGuard().setEnabled(false);
+        props.getBatch().setMode(LlmProperties.Batch.Mode.COMBINED);
+        props.getBatch().setMaxSize(2);
+        props.getBatch().setWindowMs(1000);
+        props.getBatch().setMaxInFlight(1);
+        List<Sinks.One<String>> pending = new CopyOnWriteArrayList<>();
+        batcher = new LlmBatcher(llm(props, prompt -> {
+            if (prompt.contains("independent bots")) return Mono.just("not an array");
+            Sinks.One<String> answer = Sinks.one();
+            pending.add(answer);
+            return answer.asMono();
+        }), new LlmGuard(props, registry), props);
+
+        batcher.submit("rules\n", "state a").subscribe();
+        batcher.submit("rules\n", "state b").subscribe();
+
+        assertEquals(1, singleCalls.get());
+        pending.get(0).tryEmitValue("{}");
+        assertEquals(2, singleCalls.get());
+    }
+
+    @Test
+    void dispatchFollowsTheGuardLimitPastMaxInFlight() {
+        LlmProperties props = new LlmProperties();
+        props.getBatch().setMaxInFlight(2);
+        props.getBatch().setMaxSize(4);
+        props.getBatch().setWindowMs(1000);
+        props.getGuard().setInitialLimit(4);
+        List<Sinks.One<String>> pending = new CopyOnWriteArrayList<>();
+        LlmGuard guard = new LlmGuard(props, registry);
+        batcher = new LlmBatcher(llm(props, prompt -> {
+            Sinks.One<String> answer = Sinks.one();
+            pending.add(answer);
+            return answer.asMono();
+        }), guard, props);
+
+        List<AtomicReference<String>> answers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            AtomicReference<String> answer = new AtomicReference<>();
+            batcher.submit("rules\n", "state " + i).subscribe(answer::set);
+            answers.add(answer);
+        }
+
+        assertEquals(4, guard.inFlight());
+        pending.forEach(answer -> answer.tryEmitValue("{}"));
+        assertTrue(answers.stream().allMatch(answer -> "{}".equals(answer.get())));
+        assertTrue(guard.limit() > 4, "limit stuck at " + guard.limit());
+    }
+
+    @Test
+    void dispatchBeyondAShrunkLimitWaitsInsteadOfSkipping() {
+        LlmProperties props = new LlmProperties();
+        props.getBatch().setMaxSize(2);
+        props.getBatch().setWindowMs(1000);
+        props.getGuard().setInitialLimit(1);
+        List<Sinks.One<String>> pending = new CopyOnWriteArrayList<>();
+        LlmGuard guard = new LlmGuard(props, registry);
+        batcher = new LlmBatcher(llm(props, prompt -> {
+            Sinks.One<String> answer = Sinks.one();
+            pending.add(answer);
+            return answer.asMono();
+        }), guard, props);
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        batcher.submit("rules\n", "state a").subscribe(v -> {}, error::set);
+        batcher.submit("rules\n", "state b").subscribe(v -> {}, error::set);
+
+        assertEquals(1, pending.size());
+        assertEquals(1, guard.waiting());
+        pending.get(0).tryEmitValue("{}");
+        assertEquals(2, pending.size());
+        assertNull(error.get());
+    }
+
+    private List<String> submitTwo() {
+        return Mono.zip(batcher.submit("rules\n", "state a"), batcher.submit("rules\n", "state b"))
+                .map(pair -> List.of(pair.getT1(), pair.getT2()))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private LlmBatcher combinedBatcher(Function<String, String> model) {
+        LlmProperties props = new LlmProperties();
+        props.setMaxTokens(100);
+        props.getBatch().setMode(LlmProperties.Batch.Mode.COMBINED);
+        props.getBatch().setMaxSize(2);
+        props.getBatch().setWindowMs(1000);
+        return new LlmBatcher(llm(props, prompt -> Mono.fromSupplier(() -> model.apply(prompt))),
+                new LlmGuard(props, registry), props);
+    }
+
+    private LlmService llm(LlmProperties props, Function<String, Mono<String>> model) {
+        return new LlmService(null, props, registry) {
+            @Override
+            public Mono<String> generateAsync(String prompt, Integer maxTokens) {
+                (prompt.contains("independent bots") ? combinedCalls : singleCalls).incrementAndGet();
+                return model.apply(prompt);
+            }
+        };
+    }
+}
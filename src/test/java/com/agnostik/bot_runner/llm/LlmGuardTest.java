@@ -0,0 +1,189 @@
+package com.agnostik.bot_runner.llm;
+
+import com.agnostik.bot_runner.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmGuardTest {
+
+    private final LlmProperties props = new LlmProperties();
+    private final LlmProperties.Guard cfg = props.getGuard();
+
+    LlmGuardTest() {
+        cfg.setInitialLimit(4);
+        cfg.setWindowSize(4);
+        cfg.setMinCalls(2);
+        cfg.setFailureRateThreshold(0.5);
+        cfg.setOpenMs(50);
+        cfg.setHalfOpenCalls(2);
+        cfg.setTargetLatencyMs(1000);
+    }
+
+    @Test
+    void fastSuccessGrowsLimitAdditively() {
+        LlmGuard guard = guard();
+
+        succeed(guard);
+
+        assertEquals(4.25, guard.limit(), 1e-9);
+    }
+
+    @Test
+    void failureAndSlowCallShrinkLimitMultiplicatively() {
+        cfg.setTargetLatencyMs(5);
+        cfg.setMinCalls(10);
+        LlmGuard guard = guard();
+
+        fail(guard);
+        assertEquals(4 * 0.7, guard.limit(), 1e-9);
+
+        guard.guard(() -> Mono.delay(Duration.ofMillis(30)).thenReturn("late")).block();
+        assertEquals(4 * 0.7 * 0.7, guard.limit(), 1e-9);
+    }
+
+    @Test
+    void limitNeverDropsBelowMinimum() {
+        cfg.setMinCalls(100);
+        cfg.setMinLimit(2);
+        LlmGuard guard = guard();
+
+        for (int i = 0; i < 10; i++) fail(guard);
+
+        assertEquals(2, guard.limit(), 1e-9);
+    }
+
+    @Test
+    void streamIsJudgedOnTimeToFirstElement() {
+        cfg.setTargetLatencyMs(20);
+        LlmGuard guard = guard();
+
+        guard.guardMany(() -> Flux.concat(Flux.just("first"), Mono.delay(Duration.ofMillis(60)).thenReturn("last")))
+                .blockLast();
+
+        assertEquals(4.25, guard.limit(), 1e-9);
+    }
+
+    @Test
+    void fullLimitIsSaturationNotAnOutage() {
+        cfg.setInitialLimit(1);
+        LlmGuard guard = guard();
+        Disposable pending = guard.guard(Mono::never).subscribe();
+
+        assertThrows(LlmSaturatedException.class, () -> succeed(guard));
+        assertEquals(LlmGuard.State.CLOSED, guard.state());
+        assertTrue(guard.isAvailable());
+
+        pending.dispose();
+        assertEquals(0, guard.inFlight());
+        succeed(guard);
+    }
+
+    @Test
+    void queuedCallWaitsForAPermitInsteadOfFailing() {
+        cfg.setInitialLimit(1);
+        LlmGuard guard = guard();
+        Sinks.One<String> first = Sinks.one();
+        AtomicReference<String> second = new AtomicReference<>();
+
+        guard.guardQueued(first::asMono).subscribe();
+        guard.guardQueued(() -> Mono.just("second")).subscribe(second::set);
+        assertNull(second.get());
+        assertEquals(1, guard.waiting());
+
+        first.tryEmitValue("first");
+        assertEquals("second", second.get());
+        assertEquals(0, guard.waiting());
+        assertEquals(0, guard.inFlight());
+    }
+
+    @Test
+    void cancelledWaiterLeavesTheQueue() {
+        cfg.setInitialLimit(1);
+        LlmGuard guard = guard();
+        Disposable running = guard.guardQueued(Mono::never).subscribe();
+        Disposable waiting = guard.guardQueued(() -> Mono.just("never sent")).subscribe();
+        assertEquals(1, guard.waiting());
+
+        waiting.dispose();
+        assertEquals(0, guard.waiting());
+
+        running.dispose();
+        assertEquals(0, guard.inFlight());
+        succeed(guard);
+    }
+
+    @Test
+    void breakerOpensProbesAndCloses() throws InterruptedException {
+        LlmGuard guard = guard();
+
+        fail(guard);
+        assertEquals(LlmGuard.State.CLOSED, guard.state());
+        fail(guard);
+        assertEquals(LlmGuard.State.OPEN, guard.state());
+        assertFalse(guard.isAvailable());
+        assertThrows(LlmUnavailableException.class, () -> succeed(guard));
+
+        Thread.sleep(80);
+        assertEquals(LlmGuard.State.HALF_OPEN, guard.state());
+        succeed(guard);
+        assertEquals(LlmGuard.State.HALF_OPEN, guard.state());
+        succeed(guard);
+        assertEquals(LlmGuard.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void halfOpenLetsOnlyTheConfiguredTrialCallsThrough() throws InterruptedException {
+        // room for both trials even after the failures shrink the limit
+        cfg.setInitialLimit(10);
+        LlmGuard guard = guard();
+        fail(guard);
+        fail(guard);
+        Thread.sleep(80);
+
+        Disposable first = guard.guard(Mono::never).subscribe();
+        Disposable second = guard.guard(Mono::never).subscribe();
+        assertThrows(LlmUnavailableException.class, () -> succeed(guard));
+
+        // a cancelled trial gives its permit back
+        first.dispose();
+        second.dispose();
+        succeed(guard);
+        succeed(guard);
+        assertEquals(LlmGuard.State.CLOSED, guard.state());
+    }
+
+    @Test
+    void failedTrialReopensTheBreaker() throws InterruptedException {
+        LlmGuard guard = guard();
+        fail(guard);
+        fail(guard);
+        Thread.sleep(80);
+
+        assertEquals(LlmGuard.State.HALF_OPEN, guard.state());
+        fail(guard);
+        assertEquals(LlmGuard.State.OPEN, guard.state());
+    }
+
+    private LlmGuard guard() {
+        return new LlmGuard(props, new SimpleMeterRegistry());
+    }
+
+    private static void succeed(LlmGuard guard) {
+        guard.guard(() -> Mono.just("ok")).block();
+    }
+
+    private static void fail(LlmGuard guard) {
+        guard.guard(() -> Mono.<String>error(new IllegalStateException("boom")))
+                .onErrorResume(IllegalStateException.class, e -> Mono.empty())
+                .block();
+    }
+}
@@ -0,0 +1,62 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsAcrossSegmentsAndReopens() throws Exception {
+        SnapshotDTO snapshot = new SnapshotDTO(
+                new SnapshotDTO.UserView(1L, "Here comes the sun", true, null),
+                null,
+                new SnapshotDTO.NeighborView(2L, "Howdy", false, true, true, false),
+                new SnapshotDTO.CorridorInfo(12));
+
+        RecordLog log = new RecordLog(dir, 4096);
+        for (int i = 0; i < 100; i++) {
+            log.snapshot(i, snapshot);
+            log.act(i, "left", "none", "text " + i, "accept");
+            log.call(i, "moveLeft", i % 2 == 0);
+        }
+        log.close();
+        RecordLog reopened = new RecordLog(dir, 4096);
+        reopened.decide(1000);
+        reopened.close();
+
+        assertTrue(RecordReader.segments(dir).size() > 2, "expected rotation");
+        List<Recorded> read = new ArrayList<>();
+        try (RecordReader reader = new RecordReader(dir)) {
+            reader.forEachRemaining(read::add);
+        }
+
+        assertEquals(301, read.size());
+        assertEquals(snapshot, ((Recorded.Snapshot) read.get(0)).snapshot());
+        assertEquals(new Recorded.Act(0, "left", "none", "text 0", "accept"), read.get(1));
+        assertEquals(new Recorded.Call(1, "moveLeft", false), read.get(5));
+        assertEquals(new Recorded.Decide(1000), read.get(300));
+    }
+
+    @Test
+    void closedReaderStopsIterating() throws Exception {
+        RecordLog log = new RecordLog(dir, 4096);
+        for (int i = 0; i < 10; i++) log.decide(i);
+        log.close();
+
+        RecordReader reader = new RecordReader(dir);
+        assertEquals(new Recorded.Decide(0), reader.next());
+        reader.close();
+
+        assertFalse(reader.hasNext());
+    }
+}
@@ -0,0 +1,54 @@
+package com.agnostik.bot_runner.record;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecorderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void logStaysOpenUntilItsLastSessionCloses() throws Exception {
+        Recorder recorder = recorder();
+        RecordLog draining = recorder.open("bot1");
+        RecordLog restarted = recorder.open("bot1");
+        assertSame(draining, restarted);
+
+        recorder.close("bot1");
+        restarted.decide(1);
+        recorder.close("bot1");
+        restarted.decide(2);
+
+        List<Recorded> read = new ArrayList<>();
+        new RecordReader(recorder.botDir("bot1")).forEachRemaining(read::add);
+        assertEquals(List.of(new Recorded.Decide(1)), read);
+    }
+
+    @Test
+    void reopenAfterLastCloseStartsANewLog() {
+        Recorder recorder = recorder();
+        RecordLog first = recorder.open("bot1");
+        recorder.close("bot1");
+
+        RecordLog second = recorder.open("bot1");
+
+        assertNotSame(first, second);
+        recorder.closeAll();
+    }
+
+    private Recorder recorder() {
+        AppProperties props = new AppProperties();
+        props.getRecord().setEnabled(true);
+        props.getRecord().setDir(dir.toString());
+        props.getRecord().setSegmentBytes(4096);
+        return new Recorder(props);
+    }
+}
@@ -0,0 +1,44 @@
+package com.agnostik.bot_runner.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashRingTest {
+
+    private static final int BOTS = 10_000;
+
+    @Test
+    void spreadsBotsRoughlyEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < BOTS; i++) counts.merge(ring.ownerOf("fleet-" + i), 1, Integer::sum);
+
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > BOTS / 4 * 0.7 && count < BOTS / 4 * 1.3, "unbalanced: " + counts);
+        }
+    }
+
+    @Test
+    void joiningMemberOnlyTakesBotsFromOthers() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+
+        int moved = 0;
+        for (int i = 0; i < BOTS; i++) {
+            String bot = "fleet-" + i;
+            String owner = after.ownerOf(bot);
+            if (!owner.equals(before.ownerOf(bot))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertTrue(moved < BOTS / 4 * 1.3, "moved " + moved);
+    }
+}
@@ -0,0 +1,61 @@
+package com.agnostik.bot_runner.ws;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+
+    @Test
+    void newerTextReplacesUnsentOne() {
+        OutboundQueue queue = new OutboundQueue(4);
+
+        assertEquals(OutboundQueue.Offer.QUEUED, queue.offer(text("He")));
+        assertEquals(OutboundQueue.Offer.SUPERSEDED, queue.offer(text("Hel")));
+        assertEquals(OutboundQueue.Offer.SUPERSEDED, queue.offer(text("Hell")));
+
+        List<OutboundQueue.Frame> batch = queue.poll(8);
+        assertEquals(1, batch.size());
+        assertEquals("Hell", batch.get(0).payload());
+    }
+
+    @Test
+    void textFramesNeverTakeMoreThanOneSlot() {
+        OutboundQueue queue = new OutboundQueue(1);
+
+        for (int i = 0; i < 10; i++) assertNotEquals(OutboundQueue.Offer.OVERFLOW, queue.offer(text("t" + i)));
+
+        assertEquals(List.of("t9"), queue.poll(8).stream().map(OutboundQueue.Frame::payload).toList());
+    }
+
+    @Test
+    void overflowDropsOldestFrame() {
+        OutboundQueue queue = new OutboundQueue(2);
+        queue.offer(new OutboundQueue.Frame("/app/a", 1, false));
+        queue.offer(new OutboundQueue.Frame("/app/a", 2, false));
+
+        assertEquals(OutboundQueue.Offer.OVERFLOW, queue.offer(new OutboundQueue.Frame("/app/a", 3, false)));
+        assertEquals(List.of(2, 3), queue.poll(8).stream().map(OutboundQueue.Frame::payload).toList());
+    }
+
+    @Test
+    void onlyOneDrainAtATime() {
+        OutboundQueue queue = new OutboundQueue(4);
+        queue.offer(text("a"));
+
+        assertTrue(queue.claimDrain());
+        assertFalse(queue.claimDrain());
+        queue.poll(8);
+        queue.offer(text("b"));
+        assertTrue(queue.continueDraining());
+        queue.poll(8);
+        assertFalse(queue.continueDraining());
+        assertFalse(queue.claimDrain());
+    }
+
+    private static OutboundQueue.Frame text(String text) {
+        return new OutboundQueue.Frame("/app/text", text, true);
+    }
+}
@@ -0,0 +1,71 @@
+package com.agnostik.bot_runner.ws;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconnectAdmissionTest {
+
+    @Test
+    void backoffStaysWithinZeroAndTheCap() {
+        Random random = new Random(42);
+        for (int attempt = 0; attempt < 100; attempt++) {
+            long ceiling = Math.min(60_000, 1000L << Math.min(attempt, 20));
+            for (int i = 0; i < 200; i++) {
+                long backoff = ReconnectAdmission.backoffMs(1000, 60_000, attempt, random);
+                assertTrue(backoff >= 0 && backoff <= ceiling, "attempt " + attempt + " backed off " + backoff);
+            }
+        }
+    }
+
+    @Test
+    void backoffReachesBothEndsOfTheRange() {
+        Random random = new Random(7);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 20_000; i++) {
+            long backoff = ReconnectAdmission.backoffMs(10, 40, 8, random);
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+        }
+        assertEquals(0, min);
+        assertEquals(40, max);
+    }
+
+    @Test
+    void hugeBaseDoesNotOverflowPastTheCap() {
+        long backoff = ReconnectAdmission.backoffMs(Long.MAX_VALUE / 2, 5000, 30, new Random(1));
+
+        assertTrue(backoff >= 0 && backoff <= 5000);
+    }
+
+    @Test
+    void admissionLimitsConcurrentHandshakes() {
+        ReconnectAdmission admission = new ReconnectAdmission(2, 0, System::nanoTime);
+
+        assertTrue(admission.tryAcquire());
+        assertTrue(admission.tryAcquire());
+        assertFalse(admission.tryAcquire());
+        assertEquals(2, admission.inFlight());
+
+        admission.release();
+        assertTrue(admission.tryAcquire());
+    }
+
+    @Test
+    void startsAreSpacedToTheRate() {
+        AtomicLong clock = new AtomicLong();
+        ReconnectAdmission admission = new ReconnectAdmission(0, 10, clock::get);
+
+        assertEquals(0, admission.delayMs());
+        assertEquals(100, admission.delayMs());
+        assertEquals(200, admission.delayMs());
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, admission.delayMs());
+    }
+}
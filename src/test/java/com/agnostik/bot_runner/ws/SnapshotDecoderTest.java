@@ -0,0 +1,51 @@
+package com.agnostik.bot_runner.ws;
+
+import com.agnostik.bot_runner.dto.SnapshotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotDecoderTest {
+
+    private static final String FRAME = "{"
+            + "\"me\":{\"id\":17,\"text\":\"Here comes the sun\",\"locked\":false,\"myIndex\":4,\"avatar\":{\"url\":\"x\"}},"
+            + "\"left\":{\"id\":16,\"text\":\"Is anybody out there?\",\"locked\":false,\"friend\":false,\"requestToMe\":true,\"requestFromMe\":false},"
+            + "\"right\":null,"
+            + "\"corridor\":{\"size\":32},"
+            + "\"serverTime\":[1,2,3]"
+            + "}";
+
+    private final SnapshotDecoder decoder = new SnapshotDecoder();
+
+    @Test
+    void readsKnownFieldsAndSkipsTheRest() throws Exception {
+        SnapshotDTO s = decoder.decode(bytes(FRAME), null);
+
+        assertEquals(17L, s.getMe().getId());
+        assertEquals("Here comes the sun", s.getMe().getText());
+        assertEquals(4, s.getMe().getMyIndex());
+        assertTrue(s.getLeft().isRequestToMe());
+        assertEquals("Is anybody out there?", s.getLeft().getText());
+        assertNull(s.getRight());
+        assertEquals(32, s.getCorridor().getSize());
+    }
+
+    @Test
+    void reusesUnchangedParts() throws Exception {
+        SnapshotDTO first = decoder.decode(bytes(FRAME), null);
+
+        assertSame(first, decoder.decode(bytes(FRAME), first));
+
+        SnapshotDTO next = decoder.decode(bytes(FRAME.replace("out there?", "out there?!")), first);
+        assertNotSame(first, next);
+        assertSame(first.getMe(), next.getMe());
+        assertSame(first.getCorridor(), next.getCorridor());
+        assertEquals("Is anybody out there?!", next.getLeft().getText());
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.agnostik.bot_runner.ws;
+
+import com.agnostik.bot_runner.config.AppProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandler;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StompConnectionTest {
+
+    private final AppProperties props = new AppProperties();
+    private final List<CompletableFuture<StompSession>> handshakes = new ArrayList<>();
+    private final List<StompSessionHandler> handlers = new ArrayList<>();
+    private final List<Runnable> reconnects = new ArrayList<>();
+    private final StompClientService service;
+
+    StompConnectionTest() {
+        props.getWs().setReconnectConcurrency(1);
+        props.getWs().setReconnectsPerSecond(0);
+        // handshakes settle and reconnects fire only when the test says so
+        service = new StompClientService(props, new SimpleMeterRegistry()) {
+            @Override
+            CompletableFuture<StompSession> connectAsync(String jwt, StompSessionHandler handler) {
+                CompletableFuture<StompSession> handshake = new CompletableFuture<>();
+                handshakes.add(handshake);
+                handlers.add(handler);
+                return handshake;
+            }
+
+            @Override
+            void scheduleReconnect(Runnable task, int attempt) {
+                reconnects.add(task);
+            }
+        };
+    }
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void failedReconnectReleasesItsSlot() {
+        dropped(open("a"));
+
+        runNextReconnect();
+        assertEquals(1, service.reconnectsInFlight());
+
+        handshakes.get(handshakes.size() - 1).completeExceptionally(new IOException("connection refused"));
+
+        assertEquals(0, service.reconnectsInFlight());
+        assertEquals(1, reconnects.size(), "a failed attempt schedules the next one");
+    }
+
+    @Test
+    void admissionHoldsBackReconnectsBeyondTheLimit() {
+        dropped(open("a"));
+        dropped(open("b"));
+        int before = handshakes.size();
+
+        runNextReconnect();
+        runNextReconnect();
+
+        // only the first got a handshake; the second was sent back to wait
+        assertEquals(before + 1, handshakes.size());
+        assertEquals(1, service.reconnectsInFlight());
+        assertEquals(1, reconnects.size());
+
+        handshakes.get(before).complete(session(true));
+        assertEquals(0, service.reconnectsInFlight());
+        runNextReconnect();
+        assertEquals(before + 2, handshakes.size());
+    }
+
+    @Test
+    void closedConnectionDoesNotReconnect() {
+        StompConnection connection = open("a");
+        dropped(connection);
+
+        connection.close();
+        runNextReconnect();
+
+        assertEquals(1, handshakes.size());
+        assertEquals(0, service.reconnectsInFlight());
+    }
+
+    private StompConnection open(String name) {
+        StompConnection connection = service.open(name, () -> "jwt", snapshot -> {}, () -> {});
+        connection.connect();
+        return connection;
+    }
+
+    // completes the connection's first handshake, then loses the link
+    private void dropped(StompConnection connection) {
+        int index = handshakes.size() - 1;
+        StompSession session = session(false);
+        handshakes.get(index).complete(session);
+        assertSame(session, connection.session());
+        handlers.get(index).handleTransportError(session, new IOException("connection reset"));
+    }
+
+    private void runNextReconnect() {
+        reconnects.remove(0).run();
+    }
+
+    private static StompSession session(boolean connected) {
+        return (StompSession) Proxy.newProxyInstance(StompSession.class.getClassLoader(), new Class<?>[]{StompSession.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isConnected" -> connected;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "session";
+                    default -> null;
+                });
+    }
+}